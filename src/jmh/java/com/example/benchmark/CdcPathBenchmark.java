@@ -0,0 +1,122 @@
+package com.example.benchmark;
+
+import com.example.model.queue.CustomerChangeEventDto;
+import com.example.model.queue.DebeziumChangeEvent;
+import com.example.service.DebeziumEventDecoder;
+import com.example.service.mapping.RowChangeEvent;
+import com.example.service.mapping.TableMapper;
+import com.example.service.publish.ChangeEventWriter;
+import com.example.service.publish.OutboundFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stages of the CDC hot path, measured separately per table and operation: decoding the Debezium envelope,
+ * mapping (diff and event building, routing key included) and serialization. {@code legacyConverter} is the
+ * map-based event DTO through the JSON converter, as published before the direct writer.
+ * Run with {@code ./gradlew jmh}; the gc profiler reports allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CdcPathBenchmark {
+
+    @Param({"customer", "customer_relation", "identification_document", "identification_number"})
+    public String table;
+
+    @Param({"insert", "update", "update_unchanged", "delete"})
+    public String operation;
+
+    private final DebeziumEventDecoder decoder = new DebeziumEventDecoder();
+    private final ChangeEventWriter writer = Fixtures.writer();
+    private final Jackson2JsonMessageConverter converter = Fixtures.converter();
+    private TableMapper<Object> mapper;
+    private Message message;
+    private DebeziumChangeEvent<Object> decoded;
+    private RowChangeEvent<Object> event;
+
+    @Setup
+    public void setUp() {
+        mapper = Fixtures.mapper(table);
+        message = new Message(Fixtures.envelope(table, operation));
+        decoded = decoder.decode(message, mapper.getInputTable(), mapper.getRowType());
+        if (decoded == null) {
+            throw new IllegalStateException("Fixture " + table + "/" + operation + " does not decode");
+        }
+        event = map(decoded);
+    }
+
+    @Benchmark
+    public DebeziumChangeEvent<Object> decode() {
+        return decoder.decode(message, mapper.getInputTable(), mapper.getRowType());
+    }
+
+    @Benchmark
+    public void map(Blackhole blackhole) {
+        RowChangeEvent<Object> mapped = map(decoded);
+        blackhole.consume(mapped);
+        if (mapped != null) {
+            blackhole.consume(mapper.routingKey(mapped.getAfter() != null ? mapped.getAfter() : mapped.getBefore()));
+        }
+    }
+
+    @Benchmark
+    public Message writeJson() {
+        return event == null ? null : writer.toMessage(event, OutboundFormat.JSON);
+    }
+
+    @Benchmark
+    public Message writeCbor() {
+        return event == null ? null : writer.toMessage(event, OutboundFormat.CBOR);
+    }
+
+    @Benchmark
+    public Message legacyConverter() {
+        if (event == null) {
+            return null;
+        }
+        Object before = event.getBefore();
+        Object after = event.getAfter();
+        Map<String, Object> afterRecord = after == null ? Map.of() : mapper.toRecord(after);
+        // Changed field names are not exposed by the mapper; all fields give the same allocation shape.
+        var changedFields = new HashSet<>(after == null ? mapper.toRecord(before).keySet() : afterRecord.keySet());
+        var dto = CustomerChangeEventDto.builder()
+            .table(event.getTable())
+            .type(event.getType().name())
+            .id(event.getId())
+            .before(before == null ? Map.of() : mapper.toRecord(before))
+            .after(afterRecord)
+            .changedFields(changedFields)
+            .build();
+        return converter.toMessage(dto, new MessageProperties());
+    }
+
+    @Benchmark
+    public Message endToEnd() {
+        RowChangeEvent<Object> mapped = map(decoder.decode(message, mapper.getInputTable(), mapper.getRowType()));
+        return mapped == null ? null : writer.toMessage(mapped, OutboundFormat.JSON);
+    }
+
+    private RowChangeEvent<Object> map(DebeziumChangeEvent<Object> envelope) {
+        return switch (envelope.getOperation()) {
+            case "r", "c" -> mapper.toCreateEvent(envelope.getAfter());
+            case "u" -> mapper.toUpdateEvent(envelope.getBefore(), envelope.getAfter());
+            case "d" -> mapper.toDeleteEvent(envelope.getBefore());
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.benchmark;
+
+import com.example.config.OutputProperties;
+import com.example.config.QueueChangeProperties;
+import com.example.config.QueueChangeProperties.QueueProperties;
+import com.example.config.RabbitMQConfig;
+import com.example.config.RoutingProperties;
+import com.example.config.SnapshotProperties;
+import com.example.config.TableMappingConfig;
+import com.example.config.TransactionProperties;
+import com.example.service.aggregate.CustomerOrgIndex;
+import com.example.service.mapping.TableMapper;
+import com.example.service.publish.ChangeEventWriter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Production mappings and serializers wired without Spring, plus recorded-shape Debezium envelopes from
+ * {@code src/jmh/resources/fixtures}: one file per table with an {@code insert}, {@code update},
+ * {@code update_unchanged} (only untracked columns changed) and {@code delete} envelope.
+ */
+final class Fixtures {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final QueueChangeProperties QUEUES = queues("customer", "customerRelation", "idDocument", "idNumber");
+    private static final RabbitMQConfig RABBIT = new RabbitMQConfig(new TransactionProperties(), new OutputProperties(),
+        new SnapshotProperties());
+
+    private Fixtures() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static TableMapper<Object> mapper(String table) {
+        var routing = new RoutingProperties();
+        var config = new TableMappingConfig(QUEUES, routing, new CustomerOrgIndex(routing));
+        var mapping = switch (table) {
+            case "customer" -> config.customerMapping();
+            case "customer_relation" -> config.customerRelationMapping();
+            case "identification_document" -> config.idDocumentMapping();
+            case "identification_number" -> config.idNumberMapping();
+            default -> throw new IllegalArgumentException("No mapping for " + table);
+        };
+        return (TableMapper<Object>) mapping.compile();
+    }
+
+    private static QueueChangeProperties queues(String... names) {
+        var queues = new QueueChangeProperties();
+        for (String name : names) {
+            queues.getChange().put(name, new QueueProperties());
+        }
+        return queues;
+    }
+
+    static byte[] envelope(String table, String operation) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + table + ".json")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No fixture for " + table);
+            }
+            JsonNode envelope = JSON.readTree(in).get(operation);
+            if (envelope == null) {
+                throw new IllegalArgumentException("No " + operation + " fixture for " + table);
+            }
+            return JSON.writeValueAsBytes(envelope);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ChangeEventWriter writer() {
+        return RABBIT.changeEventWriter();
+    }
+
+    /**
+     * The JSON converter the sender used before events were written directly.
+     */
+    static Jackson2JsonMessageConverter converter() {
+        return RABBIT.converter();
+    }
+}
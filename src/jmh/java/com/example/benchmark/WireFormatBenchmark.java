@@ -0,0 +1,80 @@
+package com.example.benchmark;
+
+import com.example.model.queue.DebeziumChangeEvent;
+import com.example.service.DebeziumEventDecoder;
+import com.example.service.mapping.RowChangeEvent;
+import com.example.service.mapping.TableMapper;
+import com.example.service.publish.ChangeEventWriter;
+import com.example.service.publish.OutboundFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.amqp.core.Message;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * v1 (JSON) against v2 (CBOR): payload size, printed once per table at setup, and encode/decode cost.
+ * Decoding reads a tree, as a generic consumer would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WireFormatBenchmark {
+
+    @Param({"customer", "customer_relation", "identification_document", "identification_number"})
+    public String table;
+
+    @Param({"insert", "update"})
+    public String operation;
+
+    private final ChangeEventWriter writer = Fixtures.writer();
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper cborMapper = new CBORMapper();
+    private RowChangeEvent<Object> event;
+    private byte[] json;
+    private byte[] cbor;
+
+    @Setup
+    public void setUp() {
+        TableMapper<Object> mapper = Fixtures.mapper(table);
+        DebeziumChangeEvent<Object> decoded = new DebeziumEventDecoder()
+            .decode(new Message(Fixtures.envelope(table, operation)), mapper.getInputTable(), mapper.getRowType());
+        event = "u".equals(decoded.getOperation())
+            ? mapper.toUpdateEvent(decoded.getBefore(), decoded.getAfter())
+            : mapper.toCreateEvent(decoded.getAfter());
+        json = writer.encode(event, OutboundFormat.JSON);
+        cbor = writer.encode(event, OutboundFormat.CBOR);
+        System.out.printf("%n%s/%s payload: json=%d bytes, cbor=%d bytes (%.0f%%)%n",
+            table, operation, json.length, cbor.length, 100.0 * cbor.length / json.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return writer.encode(event, OutboundFormat.JSON);
+    }
+
+    @Benchmark
+    public byte[] encodeCbor() {
+        return writer.encode(event, OutboundFormat.CBOR);
+    }
+
+    @Benchmark
+    public JsonNode decodeJson() throws IOException {
+        return jsonMapper.readTree(json);
+    }
+
+    @Benchmark
+    public JsonNode decodeCbor() throws IOException {
+        return cborMapper.readTree(cbor);
+    }
+}
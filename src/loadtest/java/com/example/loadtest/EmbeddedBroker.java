@@ -0,0 +1,79 @@
+package com.example.loadtest;
+
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.SystemConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-process AMQP 0-9-1 broker (Qpid Broker-J) with an in-memory virtual host. Stands in for RabbitMQ, so the
+ * real listener containers, confirm channels and acks run without Docker or network.
+ */
+final class EmbeddedBroker implements AutoCloseable {
+
+    private static final String INITIAL_CONFIG = "qpid-embedded.json";
+
+    private final SystemLauncher launcher = new SystemLauncher();
+    private final int port;
+    private final Path workDir;
+
+    private EmbeddedBroker(int port, Path workDir) {
+        this.port = port;
+        this.workDir = workDir;
+    }
+
+    static EmbeddedBroker start(String username, String password) {
+        try {
+            var broker = new EmbeddedBroker(freePort(), Files.createTempDirectory("crm-loadtest-broker"));
+            broker.launch(username, password);
+            return broker;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void launch(String username, String password) {
+        URL config = EmbeddedBroker.class.getClassLoader().getResource(INITIAL_CONFIG);
+        if (config == null) {
+            throw new IllegalStateException("Missing " + INITIAL_CONFIG);
+        }
+        var context = new HashMap<String, String>();
+        context.put("qpid.amqp_port", String.valueOf(port));
+        context.put("qpid.work_dir", workDir.toString());
+        context.put("qpid.user_name", username);
+        context.put("qpid.user_password", password);
+
+        var attributes = new HashMap<String, Object>();
+        attributes.put(SystemConfig.TYPE, "Memory");
+        attributes.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION, config.toExternalForm());
+        attributes.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+        attributes.put(SystemConfig.CONTEXT, Map.copyOf(context));
+        try {
+            launcher.startup(attributes);
+        } catch (Exception e) {
+            throw new IllegalStateException("Embedded broker did not start", e);
+        }
+    }
+
+    int port() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        launcher.shutdown();
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.loadtest;
+
+/**
+ * Debezium envelopes to publish, generated or replayed.
+ */
+interface EventSource {
+
+    /**
+     * @return next envelope, or {@code null} when the source is exhausted.
+     */
+    Envelope next();
+
+    /**
+     * @param table          Debezium table, selects the input exchange.
+     * @param id             row id the service writes as the output event's {@code id}.
+     * @param expectsOutput  {@code false} when the service is expected to suppress the event.
+     * @param body           raw envelope as Debezium sends it.
+     */
+    record Envelope(String table, long id, boolean expectsOutput, byte[] body) {
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.loadtest;
+
+import com.example.CrmMockApplication;
+import com.example.config.QueueChangeProperties.QueueProperties;
+import com.example.service.mapping.TableMapping;
+import org.HdrHistogram.Histogram;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the service in relay mode against an {@link EmbeddedBroker}, publishes generated or replayed Debezium
+ * envelopes into the input exchanges at a fixed rate and reports sustained throughput, end-to-end latency
+ * percentiles and heap use. Everything runs in one JVM: no Docker, Postgres or network needed.
+ * <p>
+ * {@code ./gradlew loadTest -PloadtestArgs="--rate=5000 --duration=60 --mix=c=10,u=80,d=10"},
+ * see {@link LoadTestOptions} for all options.
+ */
+public final class LoadTest {
+
+    private static final String USERNAME = "rabbit";
+    private static final String PASSWORD = "rabbit";
+    private static final String OUTPUT_EXCHANGE = "crm.update.exchange";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = LoadTestOptions.parse(args);
+        var heap = new HeapSampler();
+        int exitCode;
+        try (var broker = EmbeddedBroker.start(USERNAME, PASSWORD);
+             var service = startService(broker, options)) {
+            var connectionFactory = new CachingConnectionFactory("localhost", broker.port());
+            connectionFactory.setUsername(USERNAME);
+            connectionFactory.setPassword(PASSWORD);
+            var recorder = new OutputRecorder();
+            var outputs = consumeOutputs(connectionFactory, recorder);
+            try {
+                heap.baseline();
+                heap.start();
+                ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+                publish(options, new RabbitTemplate(connectionFactory), inputs(service), recorder);
+                drain(options, recorder);
+                heap.stop();
+                exitCode = report(options, service, recorder, heap);
+            } finally {
+                outputs.stop();
+                connectionFactory.destroy();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static ConfigurableApplicationContext startService(EmbeddedBroker broker, LoadTestOptions options) {
+        var args = new ArrayList<String>();
+        args.add("--spring.rabbitmq.host=localhost");
+        args.add("--spring.rabbitmq.port=" + broker.port());
+        args.add("--spring.rabbitmq.username=" + USERNAME);
+        args.add("--spring.rabbitmq.password=" + PASSWORD);
+        args.add("--server.port=0");
+        // After the defaults, so the command line can override them
+        args.addAll(options.serviceArgs());
+        long started = System.nanoTime();
+        ConfigurableApplicationContext service = new SpringApplicationBuilder(CrmMockApplication.class)
+            .profiles(options.profiles().split(","))
+            .run(args.toArray(String[]::new));
+        // The RSS includes the broker and the harness, compare it between runs
+        System.out.printf("Service started in %d ms (profiles %s), process RSS %s%n",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), options.profiles(), residentSetSize());
+        return service;
+    }
+
+    /**
+     * @return resident set size of this process, from {@code /proc} on Linux.
+     */
+    private static String residentSetSize() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return line.substring("VmRSS:".length()).trim();
+                }
+            }
+        } catch (IOException e) {
+            // Not Linux
+        }
+        return "n/a";
+    }
+
+    /**
+     * Debezium table to its input exchange and routing key, as the service is configured.
+     */
+    private static Map<String, QueueProperties> inputs(ConfigurableApplicationContext service) {
+        var inputs = new HashMap<String, QueueProperties>();
+        for (TableMapping<?> mapping : service.getBeansOfType(TableMapping.class).values()) {
+            inputs.put(mapping.getInputTable(), mapping.getQueue());
+        }
+        return inputs;
+    }
+
+    private static SimpleMessageListenerContainer consumeOutputs(CachingConnectionFactory connectionFactory,
+                                                                 OutputRecorder recorder) {
+        var admin = new RabbitAdmin(connectionFactory);
+        var exchange = new TopicExchange(OUTPUT_EXCHANGE);
+        var queue = new AnonymousQueue();
+        admin.declareExchange(exchange);
+        admin.declareQueue(queue);
+        admin.declareBinding(BindingBuilder.bind(queue).to(exchange).with("#"));
+
+        var container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(queue);
+        container.setAcknowledgeMode(AcknowledgeMode.NONE);
+        container.setConcurrentConsumers(1);
+        container.setPrefetchCount(1000);
+        container.setMessageListener(recorder);
+        container.start();
+        return container;
+    }
+
+    private static void publish(LoadTestOptions options, RabbitTemplate template, Map<String, QueueProperties> inputs,
+                                OutputRecorder recorder) throws Exception {
+        var properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+
+        EventSource source = options.replay() != null
+            ? new ReplayEventSource(options.replay())
+            : new SyntheticEventSource(options.tables(), options.mix(), options.customers());
+        try {
+            long intervalNanos = options.rate() > 0 ? TimeUnit.SECONDS.toNanos(1) / options.rate() : 0;
+            long started = System.nanoTime();
+            long recordFrom = started + TimeUnit.SECONDS.toNanos(options.warmup());
+            long end = recordFrom + TimeUnit.SECONDS.toNanos(options.duration());
+            boolean recording = false;
+            long next = started;
+            long sent = 0;
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= end) {
+                    break;
+                }
+                if (!recording && now >= recordFrom) {
+                    recorder.startRecording();
+                    recording = true;
+                }
+                if (intervalNanos > 0) {
+                    // Paced against the schedule, not the previous send, so a stall is caught up afterwards
+                    next += intervalNanos;
+                    if (next > now) {
+                        LockSupport.parkNanos(next - now);
+                    }
+                }
+                EventSource.Envelope envelope = source.next();
+                if (envelope == null) {
+                    break;
+                }
+                QueueProperties input = inputs.get(envelope.table());
+                if (input == null) {
+                    throw new IllegalArgumentException("No input queue for table " + envelope.table());
+                }
+                recorder.sent(envelope);
+                template.send(input.getExchangeName(), input.getRoutingKey(), new Message(envelope.body(), properties));
+                sent++;
+            }
+            if (!recording) {
+                recorder.startRecording();
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("Published %d envelopes in %.1f s (%.0f/s)%n", sent, seconds, sent / seconds);
+        } finally {
+            if (source instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static void drain(LoadTestOptions options, OutputRecorder recorder) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.drain());
+        long lastOutstanding = -1;
+        while (recorder.outstanding() > 0 && System.nanoTime() < deadline) {
+            long outstanding = recorder.outstanding();
+            if (outstanding != lastOutstanding) {
+                System.out.printf("Waiting for %d outputs%n", outstanding);
+                lastOutstanding = outstanding;
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    /**
+     * @return process exit code, non-zero when outputs are missing.
+     */
+    private static int report(LoadTestOptions options, ConfigurableApplicationContext service, OutputRecorder recorder,
+                              HeapSampler heap) {
+        Histogram latency = recorder.latencyMicros();
+        double seconds = recorder.recordedSeconds();
+        System.out.println();
+        System.out.println("=== CRM load test ===");
+        System.out.printf("source          %s%n", options.replay() != null ? options.replay() : "synthetic " + options.mix());
+        System.out.printf("target rate     %s%n", options.rate() > 0 ? options.rate() + "/s" : "unthrottled");
+        System.out.printf("outputs         expected %d, matched %d, missing %d, unmatched %d, other %d%n",
+            recorder.expected(), recorder.matched(), recorder.outstanding(), recorder.unmatched(), recorder.other());
+        System.out.printf("throughput      %.0f events/s over %.1f s%n", seconds > 0 ? recorder.recorded() / seconds : 0, seconds);
+        System.out.printf("latency ms      p50 %.2f  p95 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+            latency.getValueAtPercentile(50) / 1000.0,
+            latency.getValueAtPercentile(95) / 1000.0,
+            latency.getValueAtPercentile(99) / 1000.0,
+            latency.getValueAtPercentile(99.9) / 1000.0,
+            latency.getMaxValue() / 1000.0);
+        heap.report();
+        // Virtual threads are not counted, so the peak shows how many platform threads the mode needed
+        System.out.printf("threads         %s, Java %s, peak platform threads %d%n",
+            Threading.VIRTUAL.isActive(service.getEnvironment()) ? "virtual" : "platform",
+            Runtime.version().feature(), ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        return options.replay() == null && recorder.outstanding() > 0 ? 1 : 0;
+    }
+
+    /**
+     * Samples heap use while the load runs. Broker, harness and service share the heap, so the baseline
+     * taken before the load is reported alongside.
+     */
+    private static final class HeapSampler {
+
+        private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private final AtomicLong peak = new AtomicLong();
+        private long baseline;
+        private long gcCount;
+        private long gcMillis;
+
+        void baseline() {
+            System.gc();
+            baseline = used();
+            gcCount = -gcCount();
+            gcMillis = -gcMillis();
+        }
+
+        void start() {
+            sampler.scheduleAtFixedRate(() -> peak.accumulateAndGet(used(), Math::max), 0, 100, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            sampler.shutdownNow();
+            gcCount += gcCount();
+            gcMillis += gcMillis();
+        }
+
+        void report() {
+            long max = Runtime.getRuntime().maxMemory();
+            System.gc();
+            System.out.printf("heap MB         baseline %d, peak %d, after load %d, max %d%n",
+                mb(baseline), mb(peak.get()), mb(used()), mb(max));
+            System.out.printf("gc              %d collections, %d ms%n", gcCount, gcMillis);
+        }
+
+        private static long used() {
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+        private static long gcCount() {
+            return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+        }
+
+        private static long gcMillis() {
+            return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+        }
+
+        private static long mb(long bytes) {
+            return bytes / (1024 * 1024);
+        }
+    }
+}
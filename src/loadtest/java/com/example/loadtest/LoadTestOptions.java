@@ -0,0 +1,85 @@
+package com.example.loadtest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of {@link LoadTest}. Harness options are {@code --name=value}; anything else
+ * (e.g. {@code --crm.dispatch.lanes=32}) is passed on to the service unchanged.
+ *
+ * @param rate           events per second, 0 publishes as fast as possible.
+ * @param duration       seconds of load, after the warmup.
+ * @param warmup         seconds of load before latency and throughput are recorded.
+ * @param drain          seconds to wait for outstanding outputs after the last publish.
+ * @param mix            operation weights: {@code c} insert, {@code u} update, {@code n} update without a tracked
+ *                       change (suppressed by the service) and {@code d} delete.
+ * @param tables         Debezium tables to generate, by weight of one each.
+ * @param customers      customer ids child rows are spread over; sets how many partition keys are busy.
+ * @param replay         file with one captured Debezium envelope per line, replaces the generator.
+ * @param profiles       Spring profiles of the service, {@code relay} by default. Others need their database.
+ * @param serviceArgs    arguments passed on to the service.
+ */
+record LoadTestOptions(int rate, int duration, int warmup, int drain, Map<Character, Integer> mix,
+                       List<String> tables, int customers, Path replay, String profiles, List<String> serviceArgs) {
+
+    private static final List<String> ALL_TABLES =
+        List.of("customer", "customer_relation", "identification_document", "identification_number");
+
+    static LoadTestOptions parse(String[] args) {
+        int rate = 2000;
+        int duration = 30;
+        int warmup = 5;
+        int drain = 30;
+        Map<Character, Integer> mix = parseMix("c=20,u=60,n=10,d=10");
+        List<String> tables = ALL_TABLES;
+        int customers = 10_000;
+        Path replay = null;
+        String profiles = "relay";
+        var serviceArgs = new ArrayList<String>();
+
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator < 0 ? arg : arg.substring(0, separator);
+            String value = separator < 0 ? "" : arg.substring(separator + 1);
+            switch (name) {
+                case "--rate" -> rate = Integer.parseInt(value);
+                case "--duration" -> duration = Integer.parseInt(value);
+                case "--warmup" -> warmup = Integer.parseInt(value);
+                case "--drain" -> drain = Integer.parseInt(value);
+                case "--mix" -> mix = parseMix(value);
+                case "--tables" -> tables = parseTables(value);
+                case "--customers" -> customers = Integer.parseInt(value);
+                case "--replay" -> replay = Path.of(value);
+                case "--profiles" -> profiles = value;
+                default -> serviceArgs.add(arg);
+            }
+        }
+        return new LoadTestOptions(rate, duration, warmup, drain, mix, tables, customers, replay, profiles,
+            List.copyOf(serviceArgs));
+    }
+
+    private static Map<Character, Integer> parseMix(String value) {
+        var mix = new LinkedHashMap<Character, Integer>();
+        for (String part : value.split(",")) {
+            String[] weight = part.trim().split("=");
+            if (weight.length != 2 || weight[0].length() != 1 || "cund".indexOf(weight[0].charAt(0)) < 0) {
+                throw new IllegalArgumentException("Invalid mix entry " + part + ", expected c|u|n|d=<weight>");
+            }
+            mix.put(weight[0].charAt(0), Integer.parseInt(weight[1]));
+        }
+        return mix;
+    }
+
+    private static List<String> parseTables(String value) {
+        var tables = List.of(value.split(","));
+        for (String table : tables) {
+            if (!ALL_TABLES.contains(table)) {
+                throw new IllegalArgumentException("Unknown table " + table + ", expected one of " + ALL_TABLES);
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.loadtest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumes everything the service publishes to {@code crm.update.exchange} and matches the v1 JSON change
+ * events to their input by row id. Latency is from handing the envelope to the broker until the output
+ * arrived, so it includes both broker hops. Other streams (CBOR, aggregates, snapshot batches) are counted
+ * but not matched. Fed by a single consumer thread.
+ */
+final class OutputRecorder implements MessageListener {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final Map<Long, Long> sentNanos = new ConcurrentHashMap<>();
+    private final Histogram latencyMicros = new ConcurrentHistogram(3);
+    private final AtomicLong expected = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong unmatched = new AtomicLong();
+    private final AtomicLong other = new AtomicLong();
+    private volatile long recordFromNanos = Long.MAX_VALUE;
+    private volatile long recorded;
+    private volatile long firstRecordedNanos;
+    private volatile long lastRecordedNanos;
+
+    /**
+     * Called right before the envelope is published.
+     */
+    void sent(EventSource.Envelope envelope) {
+        if (envelope.expectsOutput()) {
+            expected.incrementAndGet();
+            sentNanos.put(envelope.id(), System.nanoTime());
+        }
+    }
+
+    /**
+     * Outputs of events sent from now on count towards latency and throughput.
+     */
+    void startRecording() {
+        recordFromNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        long received = System.nanoTime();
+        if (!MessageProperties.CONTENT_TYPE_JSON.equals(message.getMessageProperties().getContentType())) {
+            other.incrementAndGet();
+            return;
+        }
+        Long id = changeEventId(message.getBody());
+        Long sent = id == null ? null : sentNanos.remove(id);
+        if (id == null) {
+            other.incrementAndGet();
+        } else if (sent == null) {
+            unmatched.incrementAndGet();
+        } else {
+            matched.incrementAndGet();
+            if (sent >= recordFromNanos) {
+                latencyMicros.recordValue(Math.max(0, (received - sent) / 1000));
+                if (recorded++ == 0) {
+                    firstRecordedNanos = received;
+                }
+                lastRecordedNanos = received;
+            }
+        }
+    }
+
+    /**
+     * @return {@code id} of a change event, or {@code null} for other JSON outputs.
+     */
+    private static Long changeEventId(byte[] body) {
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("id".equals(field)) {
+                    return value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    long expected() {
+        return expected.get();
+    }
+
+    long matched() {
+        return matched.get();
+    }
+
+    long unmatched() {
+        return unmatched.get();
+    }
+
+    long other() {
+        return other.get();
+    }
+
+    long outstanding() {
+        return sentNanos.size();
+    }
+
+    long recorded() {
+        return recorded;
+    }
+
+    /**
+     * @return seconds between the first and last recorded output.
+     */
+    double recordedSeconds() {
+        return recorded < 2 ? 0 : (lastRecordedNanos - firstRecordedNanos) / 1e9;
+    }
+
+    Histogram latencyMicros() {
+        return latencyMicros;
+    }
+}
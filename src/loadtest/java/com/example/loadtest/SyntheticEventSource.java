@@ -0,0 +1,119 @@
+package com.example.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generates envelopes from the recorded-shape fixtures shared with the benchmarks
+ * ({@code src/jmh/resources/fixtures}). Every event gets a new row id, so outputs can be matched to their
+ * input, and an increasing LSN, so none is dropped as a redelivery. Child rows are spread over a pool of
+ * customer ids, their partition keys. Not thread safe, used by the single publishing thread.
+ */
+final class SyntheticEventSource implements EventSource {
+
+    private static final long FIRST_ID = 1_000_000_000L;
+    private static final Map<Character, String> FIXTURES = Map.of(
+        'c', "insert",
+        'u', "update",
+        'n', "update_unchanged",
+        'd', "delete"
+    );
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final Map<String, ObjectNode> templates = new HashMap<>();
+    private final List<String> tables;
+    private final char[] operations;
+    private final int[] cumulativeWeights;
+    private final int customers;
+    private long sequence = FIRST_ID;
+
+    SyntheticEventSource(List<String> tables, Map<Character, Integer> mix, int customers) {
+        this.tables = tables;
+        this.customers = customers;
+        this.operations = new char[mix.size()];
+        this.cumulativeWeights = new int[mix.size()];
+        int total = 0;
+        int i = 0;
+        for (var weight : mix.entrySet()) {
+            total += weight.getValue();
+            operations[i] = weight.getKey();
+            cumulativeWeights[i++] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Operation mix has no weight");
+        }
+        for (String table : tables) {
+            JsonNode fixture = readFixture(table);
+            for (var operation : FIXTURES.entrySet()) {
+                templates.put(key(table, operation.getKey()), (ObjectNode) fixture.get(operation.getValue()));
+            }
+        }
+    }
+
+    @Override
+    public Envelope next() {
+        String table = tables.get(random.nextInt(tables.size()));
+        char operation = nextOperation();
+        long id = sequence++;
+        long customerId = "customer".equals(table) ? id : FIRST_ID - 1 - random.nextInt(customers);
+
+        ObjectNode envelope = templates.get(key(table, operation)).deepCopy();
+        withIds(envelope.get("before"), id, customerId);
+        withIds(envelope.get("after"), id, customerId);
+        long now = System.currentTimeMillis();
+        ObjectNode source = (ObjectNode) envelope.get("source");
+        source.put("ts_ms", now);
+        source.put("lsn", id);
+        source.put("txId", id);
+        envelope.put("ts_ms", now);
+        try {
+            return new Envelope(table, id, operation != 'n', json.writeValueAsBytes(envelope));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private char nextOperation() {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private static void withIds(JsonNode row, long id, long customerId) {
+        if (row instanceof ObjectNode object) {
+            object.put("id", id);
+            if (object.has("customer_id")) {
+                object.put("customer_id", customerId);
+            }
+        }
+    }
+
+    private JsonNode readFixture(String table) {
+        try (InputStream in = SyntheticEventSource.class.getResourceAsStream("/fixtures/" + table + ".json")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No fixture for " + table);
+            }
+            return json.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String key(String table, char operation) {
+        return table + '/' + operation;
+    }
+}
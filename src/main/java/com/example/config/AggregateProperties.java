@@ -0,0 +1,22 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-memory customer aggregate (customer with its relations, documents and id numbers) built from the
+ * CDC stream.
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.aggregate")
+@Configuration
+public class AggregateProperties {
+
+    private boolean enabled = false;
+    /**
+     * Publish a customerAggregate event with the full aggregate whenever any part of it changes.
+     */
+    private boolean emitEvents = false;
+    private int initialCapacity = 1 << 16;
+}
@@ -0,0 +1,209 @@
+package com.example.config;
+
+import com.example.config.QueueChangeProperties.BatchProperties;
+import com.example.config.QueueChangeProperties.ConsumerProperties;
+import com.example.model.queue.DebeziumTransactionEvent;
+import com.example.service.CdcEventHandler;
+import com.example.service.DebeziumEventDecoder;
+import com.example.service.DeliveryAcknowledger;
+import com.example.service.mapping.TableMapper;
+import com.example.service.mapping.TableMapping;
+import com.example.service.scaling.ConsumerScalingController;
+import com.example.service.scaling.DeliveryWindow;
+import com.example.service.snapshot.SnapshotHandler;
+import com.example.service.transaction.ChangeSetAssembler;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Registers one listener container per {@link TableMapping}, all sharing {@link CdcEventHandler}.
+ * Every change queue gets its own container factory with its prefetch and consumers; queues with batch
+ * mode enabled get a batching one with the same settings. Adaptive queues are registered with {@link ConsumerScalingController}.
+ * Acks are manual: a message is acked when the broker confirmed its outputs.
+ * Snapshot queues get separate batching consumers feeding {@link SnapshotHandler}. With transaction grouping
+ * enabled, one more consumer feeds Debezium's BEGIN/END events to {@link ChangeSetAssembler}.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class CdcListenerConfig implements RabbitListenerConfigurer {
+
+    private final List<TableMapping<?>> tableMappings;
+    private final CdcEventHandler cdcEventHandler;
+    private final SnapshotHandler snapshotHandler;
+    private final SnapshotProperties snapshotProperties;
+    private final TransactionProperties transactionProperties;
+    private final DebeziumEventDecoder debeziumEventDecoder;
+    private final ChangeSetAssembler changeSetAssembler;
+    private final DeliveryAcknowledger deliveryAcknowledger;
+    private final ConsumerScalingController consumerScalingController;
+    private final SimpleRabbitListenerContainerFactoryConfigurer configurer;
+    private final ConnectionFactory connectionFactory;
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        for (TableMapping<?> mapping : tableMappings) {
+            TableMapper<?> mapper = mapping.compile();
+            BatchProperties batch = mapper.getQueue().getBatch();
+            if (batch.isEnabled()) {
+                registrar.registerEndpoint(createBatchEndpoint(mapper), createBatchFactory(batch, mapper.getQueue().getConsumer()));
+            } else {
+                registrar.registerEndpoint(createEndpoint(mapper), createFactory(mapper.getQueue().getConsumer()));
+            }
+            if (snapshotProperties.isEnabled() && mapper.getQueue().getSnapshotQueueName() != null) {
+                registrar.registerEndpoint(createSnapshotEndpoint(mapper), createSnapshotFactory());
+            }
+        }
+        if (changeSetAssembler.isEnabled()) {
+            registrar.registerEndpoint(createTransactionEndpoint(), createFactory(new ConsumerProperties()));
+        }
+    }
+
+    private SimpleRabbitListenerEndpoint createEndpoint(TableMapper<?> mapper) {
+        var endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId("cdc." + mapper.getInputTable());
+        endpoint.setQueueNames(mapper.getQueueName());
+        DeliveryWindow window = consumerScalingController.register(endpoint.getId(), mapper.getQueueName(), mapper.getQueue().getConsumer());
+        endpoint.setMessageListener((ChannelAwareMessageListener) (message, channel) -> deliveryAcknowledger.acknowledge(
+            channel,
+            message.getMessageProperties().getDeliveryTag(),
+            handle(mapper, window, message)
+        ));
+        return endpoint;
+    }
+
+    private CompletableFuture<Void> handle(TableMapper<?> mapper, DeliveryWindow window, Message message) {
+        if (window == null) {
+            return cdcEventHandler.handleEvent(mapper, message);
+        }
+        long started = window.acquire();
+        CompletableFuture<Void> handled = cdcEventHandler.handleEvent(mapper, message);
+        handled.whenComplete((result, error) -> window.release(started));
+        return handled;
+    }
+
+    private SimpleRabbitListenerEndpoint createBatchEndpoint(TableMapper<?> mapper) {
+        var endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId("cdc." + mapper.getInputTable());
+        endpoint.setQueueNames(mapper.getQueueName());
+        endpoint.setBatchListener(true);
+        DeliveryWindow window = consumerScalingController.register(endpoint.getId(), mapper.getQueueName(), mapper.getQueue().getConsumer());
+        endpoint.setMessageListener((ChannelAwareBatchMessageListener) (messages, channel) ->
+            acknowledgeAll(channel, messages, handleBatch(mapper, window, messages)));
+        return endpoint;
+    }
+
+    private List<CompletableFuture<Void>> handleBatch(TableMapper<?> mapper, DeliveryWindow window, List<Message> messages) {
+        if (window == null) {
+            return cdcEventHandler.handleBatch(mapper, messages);
+        }
+        long started = window.acquire(messages.size());
+        List<CompletableFuture<Void>> handled = cdcEventHandler.handleBatch(mapper, messages);
+        for (CompletableFuture<Void> message : handled) {
+            message.whenComplete((result, error) -> window.release(started));
+        }
+        return handled;
+    }
+
+    private SimpleRabbitListenerEndpoint createSnapshotEndpoint(TableMapper<?> mapper) {
+        var endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId("cdc.snapshot." + mapper.getInputTable());
+        endpoint.setQueueNames(mapper.getQueue().getSnapshotQueueName());
+        endpoint.setBatchListener(true);
+        endpoint.setMessageListener((ChannelAwareBatchMessageListener) (messages, channel) ->
+            acknowledgeAll(channel, messages, snapshotHandler.handleBatch(mapper, messages)));
+        return endpoint;
+    }
+
+    /**
+     * BEGIN/END events are acked once handed to the assembler. Transactions open across a restart lose their
+     * boundaries and are released without a change set on timeout.
+     */
+    private SimpleRabbitListenerEndpoint createTransactionEndpoint() {
+        var endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId("cdc.transaction");
+        endpoint.setQueueNames(transactionProperties.getQueueName());
+        endpoint.setMessageListener((ChannelAwareMessageListener) (message, channel) -> {
+            CompletableFuture<Void> handled;
+            try {
+                DebeziumTransactionEvent event = debeziumEventDecoder.decodeTransaction(message);
+                if (event != null) {
+                    changeSetAssembler.accept(event);
+                }
+                handled = CompletableFuture.completedFuture(null);
+            } catch (MessageConversionException e) {
+                handled = CompletableFuture.failedFuture(e);
+            }
+            deliveryAcknowledger.acknowledge(channel, message.getMessageProperties().getDeliveryTag(), handled);
+        });
+        return endpoint;
+    }
+
+    private void acknowledgeAll(Channel channel, List<Message> messages, List<CompletableFuture<Void>> results) {
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            deliveryAcknowledger.acknowledge(channel, message.getMessageProperties().getDeliveryTag(), results.get(i));
+        }
+    }
+
+    /**
+     * Debezium listeners decode the raw body themselves (see DebeziumEventDecoder), so the container
+     * must not run the JSON converter on incoming messages. Adaptive queues take the upper prefetch bound
+     * from the broker and limit what is processed with their delivery window.
+     */
+    private SimpleRabbitListenerContainerFactory createFactory(ConsumerProperties consumer) {
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setMessageConverter(new SimpleMessageConverter());
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(consumer.isAdaptive() ? consumer.getMaxPrefetch() : consumer.getPrefetch());
+        factory.setConcurrentConsumers(consumer.getConsumers());
+        return factory;
+    }
+
+    private SimpleRabbitListenerContainerFactory createSnapshotFactory() {
+        var factory = createBatchFactory(snapshotProperties.getBatchSize(), snapshotProperties.getReceiveTimeout(),
+            new ConsumerProperties().getPrefetch());
+        factory.setConcurrentConsumers(snapshotProperties.getConsumers());
+        return factory;
+    }
+
+    /**
+     * Batching counterpart of {@link #createFactory}, with the queue's consumers and prefetch. Adaptive batch
+     * queues acquire their delivery window per batch.
+     */
+    private SimpleRabbitListenerContainerFactory createBatchFactory(BatchProperties batch, ConsumerProperties consumer) {
+        var factory = createBatchFactory(batch.getSize(), batch.getReceiveTimeout(),
+            consumer.isAdaptive() ? consumer.getMaxPrefetch() : consumer.getPrefetch());
+        factory.setConcurrentConsumers(consumer.getConsumers());
+        return factory;
+    }
+
+    private SimpleRabbitListenerContainerFactory createBatchFactory(int batchSize, long receiveTimeout, int prefetch) {
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        // Batch must fit into one prefetch window, otherwise the consumer waits on its own unacked messages.
+        factory.setPrefetchCount(Math.max(batchSize * 2, prefetch));
+        return factory;
+    }
+}
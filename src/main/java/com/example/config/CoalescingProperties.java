@@ -0,0 +1,24 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Optional coalescing of consecutive updates of the same row. Needs the key-ordered lanes.
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.coalescing")
+@Configuration
+public class CoalescingProperties {
+
+    private boolean enabled = false;
+    /**
+     * Milliseconds an update waits for further updates of the same row before it is published.
+     */
+    private long window = 500;
+    /**
+     * Rows held at most, further updates are published right away.
+     */
+    private int maxPending = 100_000;
+}
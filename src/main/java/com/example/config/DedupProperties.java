@@ -0,0 +1,20 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Drops redelivered CDC events whose LSN was already forwarded for the same row.
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.dedup")
+@Configuration
+public class DedupProperties {
+
+    private boolean enabled = true;
+    /**
+     * Rows remembered, rounded up to a power of two. Each costs 20 bytes.
+     */
+    private int capacity = 1 << 20;
+}
@@ -0,0 +1,29 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@ConfigurationProperties(prefix = "crm.dispatch")
+@Configuration
+public class DispatchProperties {
+
+    /**
+     * Map and publish on key-ordered lanes instead of the listener thread.
+     */
+    private boolean enabled = true;
+    /**
+     * Single-threaded lanes shared by all CDC queues. Events with the same key always use the same lane.
+     */
+    private int lanes = Runtime.getRuntime().availableProcessors();
+    /**
+     * Share of a lane's turns that live changes get while bulk work waits too, between 0 and 1.
+     */
+    private double liveShare = 0.8;
+    /**
+     * Events of one source transaction after this many are bulk, 0 to keep large transactions live.
+     * Snapshot reads are always bulk.
+     */
+    private int bulkTransactionEvents = 1000;
+}
@@ -0,0 +1,33 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Initial snapshot exported by the service itself with {@code COPY} ({@code POST /snapshot/export}),
+ * instead of the {@code debezium_init} server.
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.export")
+@Configuration
+public class ExportProperties {
+
+    /**
+     * Replication slot created for live CDC, must match {@code debezium.source.slot.name}. Live Debezium
+     * streams from the point the snapshot was taken at.
+     */
+    private String slotName = "debezium_crm";
+    /**
+     * Must match {@code debezium.source.plugin.name}.
+     */
+    private String outputPlugin = "pgoutput";
+    /**
+     * Created for the tracked tables when missing, must match {@code debezium.source.publication.name}.
+     */
+    private String publicationName = "dbz_publication";
+    /**
+     * Connections copying id ranges in parallel. Each table is split into this many ranges.
+     */
+    private int partitions = 4;
+}
@@ -0,0 +1,53 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Local outbox journal. When enabled, outbound events are appended to memory-mapped segment files and their
+ * inputs acked right away; a background drainer publishes from the journal.
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.outbox")
+@Configuration
+public class OutboxProperties {
+
+    private boolean enabled = false;
+    /**
+     * Directory of the segment files and the checkpoint. Must be on a persistent local volume.
+     */
+    private String directory = "outbox";
+    /**
+     * Bytes per segment file. Must not change while the journal holds undrained events.
+     */
+    private int segmentSize = 64 * 1024 * 1024;
+    /**
+     * Segments kept before appends wait for the drainer, bounds the journal's disk use.
+     */
+    private int maxSegments = 32;
+    /**
+     * Milliseconds an append waits for a free segment before its input is requeued.
+     */
+    private long appendTimeout = 30000;
+    /**
+     * Force every append to disk. Without it an acked event survives a process crash but not a host crash.
+     */
+    private boolean fsync = false;
+    /**
+     * Publishes the drainer keeps unconfirmed.
+     */
+    private int maxInFlight = 5000;
+    /**
+     * Records the drainer reads at once. They are published back to back per publisher channel.
+     */
+    private int batchSize = 100;
+    /**
+     * Milliseconds between checkpoints of the drained position.
+     */
+    private long checkpointInterval = 1000;
+    /**
+     * Milliseconds the drainer waits after a failed publish before it retries from the checkpoint.
+     */
+    private long retryBackoff = 1000;
+}
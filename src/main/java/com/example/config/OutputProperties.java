@@ -0,0 +1,36 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Output streams published for every change event. Each stream has its own routing key version.
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.output")
+@Configuration
+public class OutputProperties {
+
+    /**
+     * v1, JSON.
+     */
+    private boolean jsonEnabled = true;
+    /**
+     * v2, CBOR.
+     */
+    private boolean cborEnabled = false;
+    /**
+     * v3, JSON with updates reduced to the changed and routing key fields.
+     */
+    private boolean jsonDeltaEnabled = false;
+    /**
+     * v4, CBOR with updates reduced to the changed and routing key fields.
+     */
+    private boolean cborDeltaEnabled = false;
+    /**
+     * Declares {@code crm.update.headers.exchange.name}, bound to the update exchange for every routing key,
+     * so consumers can bind on the change event headers instead of routing keys.
+     */
+    private boolean headersExchangeEnabled = false;
+}
@@ -0,0 +1,24 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@ConfigurationProperties(prefix = "crm.publisher")
+@Configuration
+public class PublisherProperties {
+
+    /**
+     * Dedicated publishing channels, publishes are spread round-robin across them.
+     */
+    private int lanes = 4;
+    /**
+     * Unconfirmed publishes allowed per lane before publishing blocks.
+     */
+    private int maxOutstandingConfirms = 1000;
+    /**
+     * Milliseconds to wait for a broker confirm before the publish is failed (and its input requeued).
+     */
+    private long confirmTimeout = 10000;
+}
@@ -6,15 +6,29 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Input queues by name, {@code queue.change.<name>.*}. Each TableMapping picks its entry with {@link #get}.
+ */
 @Data
-@ConfigurationProperties(prefix = "queue.change")
+@ConfigurationProperties(prefix = "queue")
 @Configuration
 public class QueueChangeProperties {
 
-    private final QueueProperties customer = new QueueProperties();
-    private final QueueProperties customerRelation = new QueueProperties();
-    private final QueueProperties idDocument = new QueueProperties();
-    private final QueueProperties idNumber = new QueueProperties();
+    private final Map<String, QueueProperties> change = new LinkedHashMap<>();
+
+    /**
+     * @throws IllegalStateException when {@code queue.change.<name>} is not configured.
+     */
+    public QueueProperties get(String name) {
+        QueueProperties queue = change.get(name);
+        if (queue == null) {
+            throw new IllegalStateException("No queue.change." + name + " properties, configured are " + change.keySet());
+        }
+        return queue;
+    }
 
     @Getter
     @Setter
@@ -22,5 +36,43 @@ public class QueueChangeProperties {
         private String exchangeName;
         private String queueName;
         private String routingKey;
+        /**
+         * Queue for snapshot ("r") rows, bound to the same exchange with the snapshot routing key used by
+         * the debezium_init server. Optional.
+         */
+        private String snapshotQueueName;
+        private String snapshotRoutingKey;
+        private final BatchProperties batch = new BatchProperties();
+        private final ConsumerProperties consumer = new ConsumerProperties();
+    }
+
+    /**
+     * Opt-in batch mode: consume up to {@code size} messages or wait up to {@code receiveTimeout} ms, map
+     * them on their key-ordered lanes, publish the outputs of each lane together and ack each message once
+     * the broker confirmed its outputs. The queue's {@code consumer} settings apply as without batching.
+     */
+    @Getter
+    @Setter
+    public static class BatchProperties {
+        private boolean enabled;
+        private int size = 100;
+        private long receiveTimeout = 200;
+    }
+
+    /**
+     * Listener tuning of the change queue. With {@code adaptive} the window of unacked deliveries being
+     * processed moves between {@code minPrefetch} and {@code maxPrefetch} (the broker prefetch), and consumers
+     * between {@code consumers} and {@code maxConsumers}, see ConsumerScalingController.
+     * More than one consumer gives up ordering per entity key, keep {@code maxConsumers} at 1 for ordered queues.
+     */
+    @Getter
+    @Setter
+    public static class ConsumerProperties {
+        private int prefetch = 250;
+        private int consumers = 1;
+        private boolean adaptive;
+        private int minPrefetch = 25;
+        private int maxPrefetch = 2000;
+        private int maxConsumers = 1;
     }
 }
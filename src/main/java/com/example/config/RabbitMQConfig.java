@@ -1,11 +1,22 @@
 package com.example.config;
 
 import com.example.config.QueueChangeProperties.QueueProperties;
+import com.example.service.mapping.TableMapping;
+import com.example.service.publish.ChangeEventWriter;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
 import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.HeadersExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
@@ -16,6 +27,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @RequiredArgsConstructor
 public class RabbitMQConfig {
@@ -23,29 +37,42 @@ public class RabbitMQConfig {
     @Value("${crm.update.exchange.name}")
     private String crmUpdateExchangeName;
 
-    private final QueueChangeProperties queueChangeProperties;
+    @Value("${crm.update.headers.exchange.name}")
+    private String crmUpdateHeadersExchangeName;
 
-    @Bean
-    public Declarables customerChangeQueue() {
-        return createDeclarables(queueChangeProperties.getCustomer());
-    }
+    private final TransactionProperties transactionProperties;
+    private final OutputProperties outputProperties;
+    private final SnapshotProperties snapshotProperties;
 
-    @Bean
-    public Declarables customerRelationChangeQueue() {
-        return createDeclarables(queueChangeProperties.getCustomerRelation());
-    }
+    // Same settings as the converter's default mapper. Shared with ChangeEventWriter so both write the same JSON.
+    private final ObjectMapper outboundObjectMapper = JsonMapper.builder()
+        .addModule(new Jdk8Module())
+        .addModule(new JavaTimeModule())
+        .disable(MapperFeature.DEFAULT_VIEW_INCLUSION)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
 
-    @Bean
-    public Declarables idDocumentChangeQueue() {
-        return createDeclarables(queueChangeProperties.getIdDocument());
-    }
+    // v2 stream, same settings in CBOR
+    private final ObjectMapper cborObjectMapper = CBORMapper.builder()
+        .addModule(new Jdk8Module())
+        .addModule(new JavaTimeModule())
+        .disable(MapperFeature.DEFAULT_VIEW_INCLUSION)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
 
+    /**
+     * Input queue, exchange and binding of every tracked table, see TableMappingConfig.
+     */
     @Bean
-    public Declarables idNumberChangeQueue() {
-        return createDeclarables(queueChangeProperties.getIdNumber());
+    public Declarables changeQueues(List<TableMapping<?>> tableMappings) {
+        var declarables = new ArrayList<Declarable>();
+        for (TableMapping<?> mapping : tableMappings) {
+            declarables.addAll(createDeclarables(mapping.getQueue()));
+        }
+        return new Declarables(declarables);
     }
 
-    private Declarables createDeclarables(QueueProperties queueProperties) {
+    private List<Declarable> createDeclarables(QueueProperties queueProperties) {
         final String queueName = queueProperties.getQueueName();
         final String exchangeName = queueProperties.getExchangeName();
         final String routingKey = queueProperties.getRoutingKey();
@@ -54,10 +81,49 @@ public class RabbitMQConfig {
         final DirectExchange exchange = new DirectExchange(exchangeName);
         final Binding binding = BindingBuilder.bind(queue).to(exchange).with(routingKey);
 
+        if (queueProperties.getSnapshotQueueName() == null) {
+            return List.of(
+                queue,
+                exchange,
+                binding
+            );
+        }
+        // Without the snapshot pipeline nobody consumes a snapshot queue, snapshot rows take the live path
+        if (!snapshotProperties.isEnabled()) {
+            return List.of(
+                queue,
+                exchange,
+                binding,
+                BindingBuilder.bind(queue).to(exchange).with(queueProperties.getSnapshotRoutingKey())
+            );
+        }
+
+        final Queue snapshotQueue = QueueBuilder.durable(queueProperties.getSnapshotQueueName()).build();
+        final Binding snapshotBinding = BindingBuilder.bind(snapshotQueue).to(exchange).with(queueProperties.getSnapshotRoutingKey());
+
+        return List.of(
+            queue,
+            exchange,
+            binding,
+            snapshotQueue,
+            snapshotBinding
+        );
+    }
+
+    /**
+     * Debezium's transaction topic, only consumed with transaction grouping enabled.
+     */
+    @Bean
+    public Declarables transactionQueue() {
+        if (!transactionProperties.isEnabled()) {
+            return new Declarables();
+        }
+        final Queue queue = QueueBuilder.durable(transactionProperties.getQueueName()).build();
+        final DirectExchange exchange = new DirectExchange(transactionProperties.getExchangeName());
         return new Declarables(
             queue,
             exchange,
-            binding
+            BindingBuilder.bind(queue).to(exchange).with(transactionProperties.getRoutingKey())
         );
     }
 
@@ -66,9 +132,30 @@ public class RabbitMQConfig {
         return new TopicExchange(crmUpdateExchangeName);
     }
 
+    /**
+     * Receives everything published to the update exchange. Consumers bind with {@code x-match} on the
+     * filter headers (see ChangeEventWriter), the broker drops non-matching messages.
+     */
+    @Bean
+    public Declarables crmUpdateHeadersExchange() {
+        if (!outputProperties.isHeadersExchangeEnabled()) {
+            return new Declarables();
+        }
+        final HeadersExchange exchange = new HeadersExchange(crmUpdateHeadersExchangeName);
+        return new Declarables(
+            exchange,
+            BindingBuilder.bind(exchange).to(crmUpdateExchange()).with("#")
+        );
+    }
+
     @Bean
     public Jackson2JsonMessageConverter converter() {
-        return new Jackson2JsonMessageConverter();
+        return new Jackson2JsonMessageConverter(outboundObjectMapper);
+    }
+
+    @Bean
+    public ChangeEventWriter changeEventWriter() {
+        return new ChangeEventWriter(outboundObjectMapper, cborObjectMapper);
     }
 
     @Bean
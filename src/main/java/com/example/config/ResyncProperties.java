@@ -0,0 +1,31 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * On-demand resync of a table from the database ({@code POST /resync/{table}}).
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.resync")
+@Configuration
+public class ResyncProperties {
+
+    /**
+     * Id ranges read in parallel per resync, each on its own connection.
+     */
+    private int partitions = 4;
+    /**
+     * Rows the server-side cursor fetches per round trip.
+     */
+    private int fetchSize = 1000;
+    /**
+     * Rows published back to back. A partition reads on once the batch is confirmed.
+     */
+    private int batchSize = 500;
+    /**
+     * Upper bound of rows published per second over all running resyncs, 0 for unlimited.
+     */
+    private int maxRowsPerSecond = 5000;
+}
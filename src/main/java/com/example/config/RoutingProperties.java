@@ -0,0 +1,22 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@ConfigurationProperties(prefix = "crm.routing")
+@Configuration
+public class RoutingProperties {
+
+    /**
+     * Route relation, document and id number events by their customer's org code, e.g. {@code idDocument.ORG1.v1}.
+     * Change sets too, e.g. {@code changeSet.ORG1.v1}.
+     */
+    private boolean childOrgCode = false;
+    /**
+     * Load the customer org codes from the database at startup. Needs a datasource, so not in the relay profile.
+     */
+    private boolean seedOrgCodes = true;
+    private int seedFetchSize = 10000;
+}
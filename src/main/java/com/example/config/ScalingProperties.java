@@ -0,0 +1,33 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Thresholds of the consumer scaling controller, shared by every queue with
+ * {@code queue.change.<queue>.consumer.adaptive=true}. Bounds are per queue.
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.scaling")
+@Configuration
+public class ScalingProperties {
+
+    /**
+     * Milliseconds between two decisions.
+     */
+    private long interval = 5000;
+    /**
+     * Ready messages from which a queue counts as behind and is scaled up.
+     */
+    private int scaleUpBacklog = 1000;
+    /**
+     * Ready messages up to which a queue counts as idle and may be scaled down.
+     */
+    private int scaleDownBacklog = 10;
+    /**
+     * Average milliseconds from hand-off until the outputs are confirmed above which the queue is not
+     * scaled up: more in flight would only queue at the broker.
+     */
+    private long maxLatency = 1000;
+}
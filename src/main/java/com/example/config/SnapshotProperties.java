@@ -0,0 +1,34 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Snapshot ("r") pipeline, consuming the per-table snapshot queues separately from live changes.
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.snapshot")
+@Configuration
+public class SnapshotProperties {
+
+    private boolean enabled = true;
+    /**
+     * Snapshot rows consumed together and packed into multi-record messages.
+     */
+    private int batchSize = 500;
+    /**
+     * Milliseconds to wait for a batch to fill up.
+     */
+    private long receiveTimeout = 1000;
+    private int consumers = 1;
+    /**
+     * Upper bound of snapshot rows forwarded per second, 0 for unlimited.
+     */
+    private int maxRowsPerSecond = 0;
+    /**
+     * Also publish every snapshot row as a single {@code <stream>.init_registry.*} insert, as before the
+     * multi-record messages. Turn off once all consumers read {@code init_batch}.
+     */
+    private boolean singleRecords = true;
+}
@@ -0,0 +1,122 @@
+package com.example.config;
+
+import com.example.model.CustomerDto;
+import com.example.model.CustomerRelationDto;
+import com.example.model.IdDocumentDto;
+import com.example.model.IdNumberDto;
+import com.example.model.queue.CustomerChangeEventDto;
+import com.example.model.queue.CustomerRelationChangeEventDto;
+import com.example.model.queue.IdDocumentChangeEventDto;
+import com.example.model.queue.IdNumberChangeEventDto;
+import com.example.service.aggregate.CustomerOrgIndex;
+import com.example.service.mapping.TableMapping;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tracked CRM tables. Adding a table is a {@code queue.change.<name>.*} entry in application.properties and
+ * a mapping here. RabbitMQConfig declares the queues of all mappings and CdcListenerConfig consumes them.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class TableMappingConfig {
+
+    private final QueueChangeProperties queueChangeProperties;
+    private final RoutingProperties routingProperties;
+    private final CustomerOrgIndex customerOrgIndex;
+
+    @Bean
+    public TableMapping<CustomerDto> customerMapping() {
+        return TableMapping.builder(CustomerDto.class)
+            .inputTable("customer")
+            .outputTable("customer")
+            .queue(queueChangeProperties.get("customer"))
+            .routingKey("customer.{orgCode}")
+            .id(CustomerDto::getId)
+            .field("fullName", CustomerDto::getFullName)
+            .field("firstName", CustomerDto::getFirstName)
+            .field("middleName", CustomerDto::getMiddleName)
+            .field("lastName", CustomerDto::getLastName)
+            .field("dateOfBirth", CustomerDto::getDateOfBirth)
+            .field("orgCode", CustomerDto::getSourceOrgCode)
+            .event(CustomerChangeEventDto.class)
+            .aggregateRoot("customer")
+            .build();
+    }
+
+    @Bean
+    public TableMapping<CustomerRelationDto> customerRelationMapping() {
+        return TableMapping.builder(CustomerRelationDto.class)
+            .inputTable("customer_relation")
+            .outputTable("customer_relation")
+            .queue(queueChangeProperties.get("customerRelation"))
+            .routingKey(childRoutingKey("relation"))
+            .routingField("orgCode", row -> customerOrgIndex.routingSegment(row.getCustomerId()))
+            .id(CustomerRelationDto::getId)
+            .partitionKey(CustomerRelationDto::getCustomerId)
+            .field("customerId", CustomerRelationDto::getCustomerId)
+            .field("relatedCustomerId", CustomerRelationDto::getRelatedCustomerId)
+            .field("typeCode", CustomerRelationDto::getRelationTypeCode)
+            .field("validFrom", CustomerRelationDto::getValidFrom)
+            .field("validTo", CustomerRelationDto::getValidTo)
+            .event(CustomerRelationChangeEventDto.class)
+            .eventField("customerId", CustomerRelationDto::getCustomerId)
+            .eventField("relatedCustomerId", CustomerRelationDto::getRelatedCustomerId)
+            // relation.v1 updates carry the previous customer, as before the mappings
+            .eventFieldsFromBefore()
+            .aggregatePart("relations")
+            .build();
+    }
+
+    @Bean
+    public TableMapping<IdDocumentDto> idDocumentMapping() {
+        return TableMapping.builder(IdDocumentDto.class)
+            .inputTable("identification_document")
+            .outputTable("identification_document")
+            .queue(queueChangeProperties.get("idDocument"))
+            .routingKey(childRoutingKey("idDocument"))
+            .routingField("orgCode", row -> customerOrgIndex.routingSegment(row.getCustomerId()))
+            .id(IdDocumentDto::getId)
+            .partitionKey(IdDocumentDto::getCustomerId)
+            .field("customerId", IdDocumentDto::getCustomerId)
+            .field("typeCode", IdDocumentDto::getDocumentTypeCode)
+            .field("number", IdDocumentDto::getDocumentNumber)
+            .field("countryCode", IdDocumentDto::getDocumentCountryCode)
+            .field("validFrom", IdDocumentDto::getDocumentValidDate)
+            .field("validTo", IdDocumentDto::getDocumentExpiryDate)
+            .event(IdDocumentChangeEventDto.class)
+            .eventField("customerId", IdDocumentDto::getCustomerId)
+            .aggregatePart("idDocuments")
+            .build();
+    }
+
+    @Bean
+    public TableMapping<IdNumberDto> idNumberMapping() {
+        return TableMapping.builder(IdNumberDto.class)
+            .inputTable("identification_number")
+            .outputTable("identification_number")
+            .queue(queueChangeProperties.get("idNumber"))
+            .routingKey(childRoutingKey("idNumber"))
+            .routingField("orgCode", row -> customerOrgIndex.routingSegment(row.getCustomerId()))
+            .id(IdNumberDto::getId)
+            .partitionKey(IdNumberDto::getCustomerId)
+            .field("customerId", IdNumberDto::getCustomerId)
+            .field("idCode", IdNumberDto::getIdentificationCode)
+            .field("idCountryCode", IdNumberDto::getIdentificationCountryCode)
+            .field("validFrom", IdNumberDto::getValidFrom)
+            .field("validTo", IdNumberDto::getValidTo)
+            .event(IdNumberChangeEventDto.class)
+            .eventField("customerId", IdNumberDto::getCustomerId)
+            .aggregatePart("idNumbers")
+            .build();
+    }
+
+    /**
+     * Child streams carry their customer's org code when {@code crm.routing.childOrgCode} is on, {@code unknown}
+     * while the customer's org code is not known.
+     */
+    private String childRoutingKey(String stream) {
+        return routingProperties.isChildOrgCode() ? stream + ".{orgCode}" : stream;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Optional grouping of the live changes of one source transaction into a single change set message,
+ * published in addition to the single events. Needs {@code provide.transaction.metadata=true} on the
+ * Debezium source.
+ */
+@Data
+@ConfigurationProperties(prefix = "crm.transaction")
+@Configuration
+public class TransactionProperties {
+
+    private boolean enabled = false;
+    /**
+     * Debezium's transaction topic, {@code <topic.prefix>.transaction}.
+     */
+    private String exchangeName = "debezium_crm_db.transaction";
+    private String queueName = "debezium_crm_db.transaction_queue";
+    private String routingKey = "crm_changes";
+    /**
+     * Milliseconds a transaction may stay incomplete. It is then released without a change set.
+     */
+    private long timeout = 5000;
+    /**
+     * Tracked events above which a transaction is released without a change set. Keep it below the change
+     * queues' prefetch, the inputs of a buffered transaction stay unacked.
+     */
+    private int maxEvents = 200;
+    /**
+     * Events buffered over all open transactions. Beyond it the oldest transactions are released.
+     */
+    private int maxBufferedEvents = 10_000;
+}
@@ -0,0 +1,44 @@
+package com.example.controller;
+
+import com.example.service.aggregate.CustomerAggregate;
+import com.example.service.aggregate.CustomerAggregateStore;
+import com.example.service.aggregate.CustomerAggregateStore.AggregateStats;
+import com.example.service.publish.ChangeEventWriter;
+import com.example.service.publish.OutboundFormat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Profile("!relay")
+@RestController
+@RequestMapping("/aggregate")
+@RequiredArgsConstructor
+public class AggregateController {
+
+    private final CustomerAggregateStore customerAggregateStore;
+    private final ChangeEventWriter changeEventWriter;
+
+    /**
+     * Current customer aggregate, as published in customerAggregate events.
+     */
+    @GetMapping("/customer/{customerId}")
+    public ResponseEntity<byte[]> customer(@PathVariable long customerId) {
+        CustomerAggregate aggregate = customerAggregateStore.get(customerId);
+        if (aggregate == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(changeEventWriter.encode(aggregate.body(), OutboundFormat.JSON));
+    }
+
+    @GetMapping("/stats")
+    public AggregateStats stats() {
+        return customerAggregateStore.stats();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.controller;
+
+import com.example.service.dedup.LsnDedupIndex;
+import com.example.service.dedup.LsnDedupIndex.DedupStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Profile("!relay")
+@RestController
+@RequestMapping("/dedup")
+@RequiredArgsConstructor
+public class DedupController {
+
+    private final LsnDedupIndex lsnDedupIndex;
+
+    /**
+     * Duplicate hit rate and memory footprint of the LSN index since startup.
+     */
+    @GetMapping("/stats")
+    public DedupStats stats() {
+        return lsnDedupIndex.stats();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.controller;
+
+import com.example.service.resync.ResyncRequest;
+import com.example.service.resync.ResyncService;
+import com.example.service.resync.ResyncService.ResyncStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.List;
+
+@Profile("!relay")
+@RestController
+@RequestMapping("/resync")
+@RequiredArgsConstructor
+public class ResyncController {
+
+    private final ResyncService resyncService;
+
+    /**
+     * Publishes the current rows of a tracked input table (e.g. {@code customer}) again as
+     * {@code init_registry} events. Runs in the background, poll {@code GET /resync/{id}} for progress.
+     */
+    @PostMapping("/{table}")
+    public ResponseEntity<ResyncStatus> start(@PathVariable String table,
+                                              @RequestParam(required = false) String orgCode,
+                                              @RequestParam(required = false) Long customerIdFrom,
+                                              @RequestParam(required = false) Long customerIdTo,
+                                              @RequestParam(required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant modifiedSince) {
+        try {
+            var request = new ResyncRequest(table, orgCode, customerIdFrom, customerIdTo, modifiedSince);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(resyncService.start(request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    @GetMapping
+    public List<ResyncStatus> jobs() {
+        return resyncService.jobs();
+    }
+
+    @GetMapping("/{id:\\d+}")
+    public ResponseEntity<ResyncStatus> job(@PathVariable long id) {
+        ResyncStatus status = resyncService.job(id);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    @DeleteMapping("/{id:\\d+}")
+    public ResponseEntity<ResyncStatus> cancel(@PathVariable long id) {
+        ResyncStatus status = resyncService.cancel(id);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+}
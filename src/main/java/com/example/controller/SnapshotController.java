@@ -0,0 +1,63 @@
+package com.example.controller;
+
+import com.example.service.snapshot.SnapshotExporter;
+import com.example.service.snapshot.SnapshotExporter.ExportStatus;
+import com.example.service.snapshot.SnapshotProgress;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+@Profile("!relay")
+@RestController
+@RequestMapping("/snapshot")
+@RequiredArgsConstructor
+public class SnapshotController {
+
+    private final SnapshotProgress snapshotProgress;
+    private final SnapshotExporter snapshotExporter;
+
+    /**
+     * Forwarded snapshot rows per table and org code since startup.
+     */
+    @GetMapping("/progress")
+    public Map<String, Map<String, Long>> progress() {
+        return snapshotProgress.snapshot();
+    }
+
+    /**
+     * Exports the tracked tables with {@code COPY} and creates the live replication slot at the snapshot.
+     * Runs in the background, poll {@code GET /snapshot/export} for progress and the LSN watermark.
+     */
+    @PostMapping("/export")
+    public ResponseEntity<ExportStatus> export() {
+        if (!snapshotExporter.isAvailable()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "No datasource configured, export needs the database");
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(snapshotExporter.start());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<ExportStatus> exportStatus() {
+        ExportStatus status = snapshotExporter.status();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    @DeleteMapping("/export")
+    public ResponseEntity<ExportStatus> cancelExport() {
+        ExportStatus status = snapshotExporter.cancel();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+}
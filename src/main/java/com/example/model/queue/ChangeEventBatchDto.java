@@ -0,0 +1,19 @@
+package com.example.model.queue;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-record message of one table, e.g. snapshot rows. Records carry the same fields as the
+ * {@code after} of a single event.
+ */
+@Data
+@Builder
+public class ChangeEventBatchDto {
+    private String table;
+    private String type;
+    private List<Map<String, Object>> records;
+}
@@ -0,0 +1,17 @@
+package com.example.model.queue;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All tracked changes of one source transaction, in commit order. Events carry the same document as the
+ * single table events of the same stream version.
+ */
+@Data
+public class ChangeSetDto {
+    private String transactionId;
+    private Long commitTimestamp;
+    private List<Map<String, Object>> events;
+}
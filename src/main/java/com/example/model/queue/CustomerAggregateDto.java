@@ -0,0 +1,19 @@
+package com.example.model.queue;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Current state of a customer with everything that belongs to it. Sections carry the same fields as the
+ * {@code after} of the single table events.
+ */
+@Data
+public class CustomerAggregateDto {
+    private Long customerId;
+    private Map<String, Object> customer;
+    private List<Map<String, Object>> relations;
+    private List<Map<String, Object>> idDocuments;
+    private List<Map<String, Object>> idNumbers;
+}
@@ -7,7 +7,7 @@ import java.io.Serial;
 import java.io.Serializable;
 
 @Data
-public class DebeziumChangeEvent implements Serializable {
+public class DebeziumChangeEvent<T> implements Serializable {
 
     @Serial
     private static final long serialVersionUID = -2324138403049087623L;
@@ -15,8 +15,10 @@ public class DebeziumChangeEvent implements Serializable {
     private Source source;
     @JsonProperty("op")
     private String operation;
-    private Object before;
-    private Object after;
+    private T before;
+    private T after;
+    // Only with provide.transaction.metadata, absent for snapshot reads
+    private Transaction transaction;
 
     // Only useful values at the moment
     @Data
@@ -27,5 +29,18 @@ public class DebeziumChangeEvent implements Serializable {
         private String db;
         private String schema;
         private String table;
+        // Postgres ordering data, used to drop redelivered events
+        private Long lsn;
+        @JsonProperty("txId")
+        private Long txId;
     }
-} 
\ No newline at end of file
+
+    @Data
+    public static class Transaction {
+        // "<txId>:<lsn>", same as in the BEGIN/END events
+        private String id;
+        // Position of the event within its transaction, from 1
+        private Long totalOrder;
+        private Long dataCollectionOrder;
+    }
+}
\ No newline at end of file
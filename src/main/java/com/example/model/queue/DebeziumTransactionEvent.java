@@ -0,0 +1,31 @@
+package com.example.model.queue;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Transaction boundary from Debezium's transaction topic ({@code provide.transaction.metadata=true}).
+ * Counts are only set on {@code END}.
+ */
+@Data
+public class DebeziumTransactionEvent {
+
+    public static final String BEGIN = "BEGIN";
+    public static final String END = "END";
+
+    private String status;
+    private String id;
+    @JsonProperty("ts_ms")
+    private Long timestamp;
+    private Long eventCount;
+    private List<DataCollection> dataCollections;
+
+    @Data
+    public static class DataCollection {
+        // "<schema>.<table>"
+        private String dataCollection;
+        private Long eventCount;
+    }
+}
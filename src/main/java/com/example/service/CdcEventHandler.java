@@ -0,0 +1,351 @@
+package com.example.service;
+
+import com.example.model.queue.DebeziumChangeEvent;
+import com.example.service.aggregate.CustomerAggregate;
+import com.example.service.aggregate.CustomerAggregateStore;
+import com.example.service.aggregate.CustomerOrgIndex;
+import com.example.service.dedup.LsnDedupIndex;
+import com.example.service.mapping.TableMapper;
+import com.example.service.metrics.CdcMetrics;
+import com.example.service.metrics.OperationMetrics;
+import com.example.service.metrics.TableMetrics;
+import com.example.service.transaction.ChangeSetAssembler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Single CDC hot path shared by every tracked table: decode, drop redeliveries, map through the table's
+ * {@link TableMapper} and forward. Returned futures complete when the outputs are confirmed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CdcEventHandler {
+
+    private static final CompletableFuture<Void> NOTHING_TO_SEND = CompletableFuture.completedFuture(null);
+
+    private final DebeziumEventDecoder debeziumEventDecoder;
+    private final CrmChangeEventSender crmChangeEventSender;
+    private final KeyOrderedDispatcher keyOrderedDispatcher;
+    private final PriorityClassifier priorityClassifier;
+    private final UpdateCoalescer updateCoalescer;
+    private final LsnDedupIndex lsnDedupIndex;
+    private final CustomerAggregateStore customerAggregateStore;
+    private final CustomerOrgIndex customerOrgIndex;
+    private final ChangeSetAssembler changeSetAssembler;
+    private final CdcMetrics cdcMetrics;
+
+    /**
+     * Decodes on the calling listener thread, then maps and publishes on the lane of the event's
+     * partition key.
+     */
+    public <T> CompletableFuture<Void> handleEvent(TableMapper<T> mapper, Message message) {
+        DebeziumChangeEvent<T> event;
+        try {
+            event = decode(mapper, message);
+        } catch (MessageConversionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (event == null) {
+            return NOTHING_TO_SEND;
+        }
+        return forward(mapper, event);
+    }
+
+    /**
+     * Maps and publishes an already decoded event on the lane of its partition key, with the event's
+     * {@link Priority}. Events of a source transaction also go to {@link ChangeSetAssembler} when transaction
+     * grouping is enabled, and complete once their change set is confirmed too.
+     */
+    public <T> CompletableFuture<Void> forward(TableMapper<T> mapper, DebeziumChangeEvent<T> event) {
+        Long id = dedupId(mapper, event);
+        boolean grouped = changeSetAssembler.isGrouped(event);
+        if (isDuplicate(mapper, event, id)) {
+            // Still counts towards its transaction
+            return grouped ? changeSetAssembler.add(event, null) : NOTHING_TO_SEND;
+        }
+        Priority priority = priorityClassifier.classify(event);
+        var published = keyOrderedDispatcher.dispatch(partitionKey(mapper, event), priority, () -> {
+            OutboundEvent mapped = map(mapper, event);
+            long publishStarted = System.nanoTime();
+            var sent = measured(mapper, event, mapped, updateCoalescer.submit(mapped), publishStarted);
+            if (grouped) {
+                sent = CompletableFuture.allOf(sent, changeSetAssembler.add(event, mapped));
+            }
+            return withAggregate(event, mapped, sent);
+        });
+        return remember(mapper, event, id, published);
+    }
+
+    /**
+     * Decodes a whole consumer batch on the calling listener thread and drops redeliveries, then splits it
+     * by lane and publisher channel. Each slice is mapped on its lane like {@link #forward} and its outputs go
+     * out back to back on their channel, so events keep their order with the other work of their keys. A slice
+     * is {@link Priority#LIVE} when any of its events is. Events grouped by transaction take the
+     * {@link #forward} path, after the slices collected before them.
+     *
+     * @return one future per input message, in input order.
+     */
+    public <T> List<CompletableFuture<Void>> handleBatch(TableMapper<T> mapper, List<Message> messages) {
+        var results = new ArrayList<CompletableFuture<Void>>(messages.size());
+        var slices = new LinkedHashMap<BatchLane, BatchSlice<T>>();
+        for (Message message : messages) {
+            DebeziumChangeEvent<T> event;
+            try {
+                event = decode(mapper, message);
+            } catch (MessageConversionException e) {
+                results.add(CompletableFuture.failedFuture(e));
+                continue;
+            }
+            if (event == null) {
+                results.add(NOTHING_TO_SEND);
+                continue;
+            }
+            if (changeSetAssembler.isGrouped(event)) {
+                dispatchAll(mapper, slices);
+                results.add(forward(mapper, event));
+                continue;
+            }
+            Long id = dedupId(mapper, event);
+            if (isDuplicate(mapper, event, id)) {
+                results.add(NOTHING_TO_SEND);
+                continue;
+            }
+            long key = partitionKey(mapper, event);
+            var lane = new BatchLane(keyOrderedDispatcher.lane(key), crmChangeEventSender.channel(key));
+            var result = new CompletableFuture<Void>();
+            slices.computeIfAbsent(lane, ignored -> new BatchSlice<>())
+                .add(event, key, id, priorityClassifier.classify(event), result);
+            results.add(result);
+        }
+        dispatchAll(mapper, slices);
+        return results;
+    }
+
+    private <T> void dispatchAll(TableMapper<T> mapper, Map<BatchLane, BatchSlice<T>> slices) {
+        for (BatchSlice<T> slice : slices.values()) {
+            dispatch(mapper, slice);
+        }
+        slices.clear();
+    }
+
+    private <T> void dispatch(TableMapper<T> mapper, BatchSlice<T> slice) {
+        long[] keys = slice.keys.stream().mapToLong(Long::longValue).toArray();
+        var dispatched = keyOrderedDispatcher.dispatch(keys, slice.priority, () -> {
+            int size = slice.events.size();
+            var mapped = new OutboundEvent[size];
+            var outbound = new ArrayList<OutboundEvent>(size);
+            for (int i = 0; i < size; i++) {
+                mapped[i] = map(mapper, slice.events.get(i));
+                if (mapped[i] != null) {
+                    outbound.add(mapped[i]);
+                }
+            }
+            long publishStarted = System.nanoTime();
+            // Keys of the slice share a publisher channel, any of them picks it
+            List<CompletableFuture<Void>> submitted = updateCoalescer.submitAll(outbound, keys[0]);
+            var completed = new CompletableFuture<?>[size];
+            int next = 0;
+            for (int i = 0; i < size; i++) {
+                DebeziumChangeEvent<T> event = slice.events.get(i);
+                var published = mapped[i] == null
+                    ? NOTHING_TO_SEND
+                    : measured(mapper, event, mapped[i], submitted.get(next++), publishStarted);
+                var done = remember(mapper, event, slice.ids.get(i), withAggregate(event, mapped[i], published));
+                completeWith(slice.results.get(i), done);
+                completed[i] = done;
+            }
+            return CompletableFuture.allOf(completed);
+        });
+        // Fails what the lane never ran, e.g. when shutting down
+        dispatched.exceptionally(error -> {
+            slice.results.forEach(result -> result.completeExceptionally(error));
+            return null;
+        });
+    }
+
+    /**
+     * @return decoded event, or {@code null} when invalid (logged).
+     */
+    public <T> DebeziumChangeEvent<T> decode(TableMapper<T> mapper, Message message) {
+        TableMetrics metrics = cdcMetrics.table(mapper.getInputTable());
+        long started = System.nanoTime();
+        DebeziumChangeEvent<T> event;
+        try {
+            event = debeziumEventDecoder.decode(message, mapper.getInputTable(), mapper.getRowType());
+        } catch (MessageConversionException e) {
+            metrics.rejected();
+            throw e;
+        }
+        metrics.decoded(started);
+        log.debug("Received Debezium event: {}", event);
+
+        if (event == null) {
+            metrics.rejected();
+            log.error("Invalid event received: {}", message);
+        } else {
+            metrics.operation(event.getOperation()).received();
+        }
+        return event;
+    }
+
+    private <T> OperationMetrics metrics(TableMapper<T> mapper, DebeziumChangeEvent<T> event) {
+        return cdcMetrics.table(mapper.getInputTable()).operation(event.getOperation());
+    }
+
+    /**
+     * Records publish time and source lag once the event is confirmed.
+     */
+    private <T> CompletableFuture<Void> measured(TableMapper<T> mapper, DebeziumChangeEvent<T> event, OutboundEvent mapped,
+                                                 CompletableFuture<Void> published, long startedNanos) {
+        if (mapped != null) {
+            OperationMetrics metrics = metrics(mapper, event);
+            Long sourceTimestamp = event.getSource().getTimestamp();
+            published.thenRun(() -> metrics.published(startedNanos, sourceTimestamp));
+        }
+        return published;
+    }
+
+    /**
+     * Updates the customer aggregate and publishes it when it changed. Snapshot reads only update it.
+     */
+    private CompletableFuture<Void> withAggregate(DebeziumChangeEvent<?> event, OutboundEvent mapped,
+                                                  CompletableFuture<Void> published) {
+        if (mapped == null || !customerAggregateStore.isEnabled()) {
+            return published;
+        }
+        CustomerAggregate aggregate = customerAggregateStore.apply(mapped.event(), !"r".equals(event.getOperation()));
+        if (aggregate == null) {
+            return published;
+        }
+        return CompletableFuture.allOf(published, crmChangeEventSender.sendAggregate(aggregate));
+    }
+
+    /**
+     * @return row id used for duplicate detection, or {@code null} for events that are never deduplicated.
+     * Snapshot reads are excluded: their LSN is the snapshot position and says nothing about live changes.
+     */
+    private static <T> Long dedupId(TableMapper<T> mapper, DebeziumChangeEvent<T> event) {
+        if ("r".equals(event.getOperation()) || event.getSource().getLsn() == null) {
+            return null;
+        }
+        return mapper.id(event.getAfter() != null ? event.getAfter() : event.getBefore());
+    }
+
+    private <T> boolean isDuplicate(TableMapper<T> mapper, DebeziumChangeEvent<T> event, Long id) {
+        if (id == null || !lsnDedupIndex.isDuplicate(mapper.getInputTable(), id, event.getSource().getLsn())) {
+            return false;
+        }
+        metrics(mapper, event).duplicate();
+        log.debug("Dropping redelivered event of {} {} at LSN {}", mapper.getInputTable(), id, event.getSource().getLsn());
+        return true;
+    }
+
+    /**
+     * Records the event's LSN once its outputs are confirmed. A failed publish is recorded as such, so its
+     * redelivery is forwarded even when a later event of the row is confirmed first.
+     */
+    private <T> CompletableFuture<Void> remember(TableMapper<T> mapper, DebeziumChangeEvent<T> event, Long id,
+                                                 CompletableFuture<Void> published) {
+        if (id == null) {
+            return published;
+        }
+        return published.whenComplete((done, error) -> {
+            if (error == null) {
+                lsnDedupIndex.record(mapper.getInputTable(), id, event.getSource().getLsn());
+            } else {
+                lsnDedupIndex.recordFailure(mapper.getInputTable(), id, event.getSource().getLsn());
+            }
+        });
+    }
+
+    private static <T> long partitionKey(TableMapper<T> mapper, DebeziumChangeEvent<T> event) {
+        return mapper.partitionKey(event.getAfter() != null ? event.getAfter() : event.getBefore());
+    }
+
+    private static void completeWith(CompletableFuture<Void> result, CompletableFuture<Void> source) {
+        source.whenComplete((done, error) -> {
+            if (error == null) {
+                result.complete(null);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    private <T> OutboundEvent map(TableMapper<T> mapper, DebeziumChangeEvent<T> event) {
+        OperationMetrics metrics = metrics(mapper, event);
+        long started = System.nanoTime();
+        OutboundEvent mapped = mapEvent(mapper, event);
+        metrics.mapped(started);
+        if (mapped == null) {
+            metrics.unchanged();
+        }
+        return mapped;
+    }
+
+    private <T> OutboundEvent mapEvent(TableMapper<T> mapper, DebeziumChangeEvent<T> event) {
+        T before = event.getBefore();
+        T after = event.getAfter();
+        long partitionKey = partitionKey(mapper, event);
+        // Before routing, so children of this customer on the same lane see its org code
+        customerOrgIndex.accept(mapper, after);
+        return switch (event.getOperation()) {
+            case "r" -> new OutboundEvent(mapper.toCreateEvent(after), mapper.initRoutingKey(after), partitionKey);
+            case "c" -> new OutboundEvent(mapper.toCreateEvent(after), mapper.routingKey(after), partitionKey);
+            case "u" -> toUpdateIfChangedTrackedValue(mapper, before, after, partitionKey);
+            case "d" -> new OutboundEvent(mapper.toDeleteEvent(before), mapper.routingKey(before), partitionKey);
+            default -> {
+                log.warn("Unknown operation: {}", event.getOperation());
+                yield null;
+            }
+        };
+    }
+
+    private <T> OutboundEvent toUpdateIfChangedTrackedValue(TableMapper<T> mapper, T before, T after, long partitionKey) {
+        var event = mapper.toUpdateEvent(before, after);
+        if (event == null) {
+            return null;
+        }
+        return new OutboundEvent(event, mapper.routingKey(before), partitionKey);
+    }
+
+    /**
+     * Lane and publisher channel shared by a slice of a consumer batch.
+     */
+    private record BatchLane(int lane, int channel) {
+    }
+
+    /**
+     * Events of a consumer batch mapped and published by one task, with their keys, dedup ids and the
+     * futures returned for them.
+     */
+    private static final class BatchSlice<T> {
+
+        private final List<DebeziumChangeEvent<T>> events = new ArrayList<>();
+        private final List<Long> keys = new ArrayList<>();
+        private final List<Long> ids = new ArrayList<>();
+        private final List<CompletableFuture<Void>> results = new ArrayList<>();
+        private Priority priority = Priority.BULK;
+
+        private void add(DebeziumChangeEvent<T> event, long key, Long id, Priority eventPriority,
+                         CompletableFuture<Void> result) {
+            events.add(event);
+            keys.add(key);
+            ids.add(id);
+            results.add(result);
+            if (eventPriority == Priority.LIVE) {
+                priority = Priority.LIVE;
+            }
+        }
+    }
+}
@@ -1,18 +1,39 @@
 package com.example.service;
 
-import com.example.model.queue.CustomerChangeEventDto;
+import com.example.config.OutputProperties;
+import com.example.model.queue.CustomerAggregateDto;
+import com.example.service.aggregate.CustomerAggregate;
+import com.example.service.outbox.OutboxJournal;
+import com.example.service.publish.ChangeEventWriter;
+import com.example.service.publish.ConfirmingPublisher;
+import com.example.service.publish.OutboundFormat;
+import com.example.service.publish.OutboundMessage;
+import com.example.service.transaction.ChangeSet;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @Component
 @Log4j2
 @RequiredArgsConstructor
 public class CrmChangeEventSender {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final ConfirmingPublisher confirmingPublisher;
+    private final ChangeEventWriter changeEventWriter;
+    private final MessageConverter messageConverter;
+    private final OutputProperties outputProperties;
+    private final OutboxJournal outboxJournal;
 
     @Value("${crm.update.exchange.name}")
     private String crmUpdateExchangeName;
@@ -20,16 +41,199 @@ public class CrmChangeEventSender {
     @Value("${crm.update.routingKey.prefix}")
     private String crmUpdatePrefix;
 
-    public void send(CustomerChangeEventDto event, String routingKeySuffix) {
-        rabbitTemplate.convertAndSend(
-            crmUpdateExchangeName,
-            createRoutingKey(routingKeySuffix),
-            event
+    private OutboundFormat[] formats;
+    private OutboundFormat[] aggregateFormats;
+
+    @PostConstruct
+    public void init() {
+        var enabled = EnumSet.noneOf(OutboundFormat.class);
+        if (outputProperties.isJsonEnabled()) {
+            enabled.add(OutboundFormat.JSON);
+        }
+        if (outputProperties.isCborEnabled()) {
+            enabled.add(OutboundFormat.CBOR);
+        }
+        if (outputProperties.isJsonDeltaEnabled()) {
+            enabled.add(OutboundFormat.JSON_DELTA);
+        }
+        if (outputProperties.isCborDeltaEnabled()) {
+            enabled.add(OutboundFormat.CBOR_DELTA);
+        }
+        if (enabled.isEmpty()) {
+            log.warn("All output streams are disabled, change events are consumed without being forwarded");
+        }
+        formats = enabled.toArray(OutboundFormat[]::new);
+        // Aggregates are whole documents, delta streams don't carry them
+        aggregateFormats = enabled.stream().filter(format -> !format.isDelta()).toArray(OutboundFormat[]::new);
+    }
+
+    /**
+     * Publishes the event once per enabled output stream.
+     *
+     * @return completed once the broker confirmed every publish.
+     */
+    public CompletableFuture<Void> send(OutboundEvent outbound) {
+        if (formats.length == 1) {
+            return publish(outbound, formats[0]);
+        }
+        var published = new CompletableFuture<?>[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            published[i] = publish(outbound, formats[i]);
+        }
+        return CompletableFuture.allOf(published);
+    }
+
+    private CompletableFuture<Void> publish(OutboundEvent outbound, OutboundFormat format) {
+        return publish(
+            createRoutingKey(outbound.routingKeySuffix(), format),
+            changeEventWriter.toMessage(outbound.event(), format),
+            outbound.partitionKey()
         );
     }
 
-    private String createRoutingKey(String suffix) {
-        return crmUpdatePrefix + suffix;
+    /**
+     * Publishes directly, or appends to the outbox journal when it is enabled. The future then completes
+     * once journaled and the drainer publishes later.
+     */
+    private CompletableFuture<Void> publish(String routingKey, Message message, long orderingKey) {
+        if (outboxJournal.isEnabled()) {
+            return outboxJournal.append(crmUpdateExchangeName, routingKey, message, orderingKey, false);
+        }
+        return confirmingPublisher.publish(crmUpdateExchangeName, routingKey, message, orderingKey);
+    }
+
+    /**
+     * Publishes a customer aggregate once per enabled full (non-delta) output stream, in order with the
+     * customer's events.
+     */
+    public CompletableFuture<Void> sendAggregate(CustomerAggregate aggregate) {
+        var published = new CompletableFuture<?>[aggregateFormats.length];
+        for (int i = 0; i < aggregateFormats.length; i++) {
+            published[i] = publish(
+                createRoutingKey(aggregate.routingKeySuffix(), aggregateFormats[i]),
+                changeEventWriter.toMessage(aggregate.body(), CustomerAggregateDto.class, aggregateFormats[i]),
+                aggregate.customerId()
+            );
+        }
+        return CompletableFuture.allOf(published);
+    }
+
+    /**
+     * Publishes a transaction's change set once per enabled output stream, as {@code changeSet.<version>}
+     * or {@code changeSet.<orgCode>.<version>}.
+     */
+    public CompletableFuture<Void> sendChangeSet(ChangeSet changeSet) {
+        var published = new CompletableFuture<?>[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            published[i] = publish(
+                createRoutingKey(changeSet.routingKeySuffix(), formats[i]),
+                changeEventWriter.toMessage(changeSet, formats[i]),
+                ChangeSet.ORDERING_KEY
+            );
+        }
+        return CompletableFuture.allOf(published);
+    }
+
+    /**
+     * @return publisher channel of the ordering key. Events of keys on one channel can go out together with
+     * {@link #sendAll} and stay in order with their single sends.
+     */
+    public int channel(long orderingKey) {
+        return confirmingPublisher.channel(orderingKey);
+    }
+
+    /**
+     * Publishes all events back to back on the channel picked by {@code orderingKey}.
+     *
+     * @return one confirm future per event, in input order.
+     */
+    public List<CompletableFuture<Void>> sendAll(List<OutboundEvent> events, long orderingKey) {
+        return sendAll(events, orderingKey, false);
+    }
+
+    /**
+     * Publishes all events back to back on the bulk channel, e.g. the rows of a resync, so live events never
+     * queue behind them.
+     *
+     * @return one confirm future per event, in input order.
+     */
+    public List<CompletableFuture<Void>> sendAllBulk(List<OutboundEvent> events) {
+        return sendAll(events, 0, true);
+    }
+
+    private List<CompletableFuture<Void>> sendAll(List<OutboundEvent> events, long orderingKey, boolean bulk) {
+        if (formats.length == 0) {
+            return Collections.nCopies(events.size(), CompletableFuture.completedFuture(null));
+        }
+        var messages = new ArrayList<OutboundMessage>(events.size() * formats.length);
+        for (OutboundEvent outbound : events) {
+            for (OutboundFormat format : formats) {
+                messages.add(new OutboundMessage(
+                    createRoutingKey(outbound.routingKeySuffix(), format),
+                    changeEventWriter.toMessage(outbound.event(), format)
+                ));
+            }
+        }
+        List<CompletableFuture<Void>> published = publishAll(messages, orderingKey, bulk);
+        if (formats.length == 1) {
+            return published;
+        }
+
+        var results = new ArrayList<CompletableFuture<Void>>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            int first = i * formats.length;
+            results.add(CompletableFuture.allOf(published.subList(first, first + formats.length).toArray(CompletableFuture[]::new)));
+        }
+        return results;
+    }
+
+    private List<CompletableFuture<Void>> publishAll(List<OutboundMessage> messages, long orderingKey, boolean bulk) {
+        if (!outboxJournal.isEnabled()) {
+            return bulk
+                ? confirmingPublisher.publishAllBulk(crmUpdateExchangeName, messages)
+                : confirmingPublisher.publishAll(crmUpdateExchangeName, messages, orderingKey);
+        }
+        var journaled = new ArrayList<CompletableFuture<Void>>(messages.size());
+        for (OutboundMessage outbound : messages) {
+            journaled.add(outboxJournal.append(crmUpdateExchangeName, outbound.routingKey(), outbound.message(), orderingKey, bulk));
+        }
+        return journaled;
+    }
+
+    /**
+     * Publishes a bulk payload (e.g. a multi-record snapshot message) on the bulk channel.
+     */
+    public CompletableFuture<Void> sendBulk(Object payload, String routingKeySuffix) {
+        return publishBulk(crmUpdatePrefix + routingKeySuffix, toMessage(payload));
+    }
+
+    /**
+     * Publishes the event once per enabled output stream on the bulk channel, e.g. a single snapshot record.
+     */
+    public CompletableFuture<Void> sendBulk(OutboundEvent outbound) {
+        var published = new CompletableFuture<?>[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            published[i] = publishBulk(
+                createRoutingKey(outbound.routingKeySuffix(), formats[i]),
+                changeEventWriter.toMessage(outbound.event(), formats[i])
+            );
+        }
+        return CompletableFuture.allOf(published);
+    }
+
+    private CompletableFuture<Void> publishBulk(String routingKey, Message message) {
+        if (outboxJournal.isEnabled()) {
+            return outboxJournal.append(crmUpdateExchangeName, routingKey, message, 0, true);
+        }
+        return confirmingPublisher.publishBulk(crmUpdateExchangeName, routingKey, message);
+    }
+
+    private Message toMessage(Object payload) {
+        return messageConverter.toMessage(payload, new MessageProperties());
+    }
+
+    private String createRoutingKey(String suffix, OutboundFormat format) {
+        return crmUpdatePrefix + suffix + '.' + format.getVersion();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,128 @@
+package com.example.service;
+
+import com.example.model.queue.DebeziumChangeEvent;
+import com.example.model.queue.DebeziumChangeEvent.Source;
+import com.example.model.queue.DebeziumChangeEvent.Transaction;
+import com.example.model.queue.DebeziumTransactionEvent;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes raw Debezium envelopes straight from the AMQP body into typed row DTOs.
+ * The body is streamed once; {@code before}/{@code after} are bound with cached readers
+ * and no intermediate maps are built.
+ */
+@Component
+public class DebeziumEventDecoder {
+
+    private static final String DB = "crm_db";
+    private static final String SCHEMA = "crm";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader sourceReader;
+    private final ObjectReader transactionReader;
+    private final ObjectReader transactionEventReader;
+    private final Map<Class<?>, ObjectReader> rowReaders = new ConcurrentHashMap<>();
+
+    public DebeziumEventDecoder() {
+        this.objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+        this.sourceReader = objectMapper.readerFor(Source.class);
+        this.transactionReader = objectMapper.readerFor(Transaction.class);
+        this.transactionEventReader = objectMapper.readerFor(DebeziumTransactionEvent.class);
+    }
+
+    /**
+     * @return decoded event, or {@code null} when the envelope is incomplete or not from the expected table.
+     * @throws MessageConversionException when the body is not valid JSON for the row type.
+     */
+    public <T> DebeziumChangeEvent<T> decode(Message message, String table, Class<T> rowType) {
+        ObjectReader rowReader = rowReaders.computeIfAbsent(rowType, objectMapper::readerFor);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(message.getBody())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            var event = new DebeziumChangeEvent<T>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "source" -> {
+                        Source source = token == JsonToken.VALUE_NULL ? null : sourceReader.readValue(parser);
+                        if (!matches(source, table)) {
+                            return null;
+                        }
+                        event.setSource(source);
+                    }
+                    case "op" -> event.setOperation(token == JsonToken.VALUE_NULL ? null : parser.getText());
+                    case "before" -> event.setBefore(readRow(parser, token, rowReader));
+                    case "after" -> event.setAfter(readRow(parser, token, rowReader));
+                    case "transaction" -> event.setTransaction(token == JsonToken.VALUE_NULL ? null : transactionReader.readValue(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (event.getOperation() == null || event.getSource() == null) {
+                return null;
+            }
+            return event;
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to decode Debezium event", e);
+        }
+    }
+
+    /**
+     * @return decoded transaction boundary, or {@code null} when the status or id is missing.
+     * @throws MessageConversionException when the body is not valid JSON.
+     */
+    public DebeziumTransactionEvent decodeTransaction(Message message) {
+        DebeziumTransactionEvent event;
+        try {
+            event = transactionEventReader.readValue(message.getBody());
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to decode Debezium transaction event", e);
+        }
+        if (event == null || event.getStatus() == null || event.getId() == null) {
+            return null;
+        }
+        return event;
+    }
+
+    /**
+     * @return {@code data_collection} of a tracked table in the transaction events.
+     */
+    public static String dataCollection(String table) {
+        return SCHEMA + '.' + table;
+    }
+
+    private static <T> T readRow(JsonParser parser, JsonToken token, ObjectReader rowReader) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return rowReader.readValue(parser);
+    }
+
+    private static boolean matches(Source source, String table) {
+        return source != null
+            && DB.equals(source.getDb())
+            && SCHEMA.equals(source.getSchema())
+            && table.equals(source.getTable());
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.example.service;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ShutdownSignalException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Acks consumed Debezium messages once their outputs are confirmed by the broker, or journaled when the
+ * outbox is enabled. Deliveries finish out of order on the key-ordered lanes, so acks are tracked per
+ * channel and a delivery tag is only acked (with {@code multiple}) once every earlier tag on that channel
+ * has finished.
+ * Failed publishes are requeued, undecodable messages are rejected, both right away.
+ */
+@Slf4j
+@Component
+public class DeliveryAcknowledger {
+
+    private final Map<Channel, DeliveryTracker> trackers = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Must be called on the listener thread, in delivery order.
+     */
+    public void acknowledge(Channel channel, long deliveryTag, CompletableFuture<?> completion) {
+        DeliveryTracker tracker = trackers.computeIfAbsent(channel, DeliveryTracker::new);
+        Delivery delivery = tracker.register(deliveryTag);
+        completion.whenComplete((result, error) -> tracker.complete(delivery, error));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static final class Delivery {
+
+        private final long tag;
+        private final long generation;
+        private boolean finished;
+        private boolean acked;
+
+        private Delivery(long tag, long generation) {
+            this.tag = tag;
+            this.generation = generation;
+        }
+    }
+
+    private static final class DeliveryTracker {
+
+        private final Channel channel;
+        private final ArrayDeque<Delivery> inFlight = new ArrayDeque<>();
+        private long lastTag;
+        private long generation;
+
+        private DeliveryTracker(Channel channel) {
+            this.channel = channel;
+        }
+
+        private synchronized Delivery register(long tag) {
+            if (tag <= lastTag) {
+                // Channel was reopened and tags restarted, earlier deliveries will be redelivered by the broker.
+                inFlight.clear();
+                generation++;
+            }
+            lastTag = tag;
+            var delivery = new Delivery(tag, generation);
+            inFlight.addLast(delivery);
+            return delivery;
+        }
+
+        private synchronized void complete(Delivery delivery, Throwable error) {
+            if (delivery.generation != generation) {
+                return;
+            }
+            try {
+                delivery.finished = true;
+                if (error == null) {
+                    delivery.acked = true;
+                } else if (unwrap(error) instanceof MessageConversionException) {
+                    log.error("Rejecting undecodable delivery {}", delivery.tag, error);
+                    channel.basicReject(delivery.tag, false);
+                } else {
+                    log.warn("Publish failed, requeueing delivery {}", delivery.tag, error);
+                    channel.basicNack(delivery.tag, false, true);
+                }
+
+                long ackUpTo = -1;
+                while (!inFlight.isEmpty() && inFlight.peekFirst().finished) {
+                    Delivery head = inFlight.pollFirst();
+                    if (head.acked) {
+                        ackUpTo = head.tag;
+                    }
+                }
+                if (ackUpTo > 0) {
+                    channel.basicAck(ackUpTo, true);
+                }
+            } catch (IOException | ShutdownSignalException e) {
+                log.warn("Could not acknowledge delivery {}, it will be redelivered", delivery.tag, e);
+            }
+        }
+    }
+}
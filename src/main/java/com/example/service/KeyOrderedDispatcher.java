@@ -0,0 +1,359 @@
+package com.example.service;
+
+import com.example.config.DispatchProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs CDC work on a fixed set of single-threaded lanes chosen by entity key, so work is parallel across
+ * keys while events of one key keep their order. Lanes run on virtual threads when
+ * {@code spring.threads.virtual.enabled} is set (Java 21+), like the listener containers.
+ * <p>
+ * Every lane queues {@link Priority#LIVE} and {@link Priority#BULK} work separately. While both wait, a lane
+ * runs live work for {@code crm.dispatch.liveShare} of its turns, otherwise whatever waits. Work of a key
+ * that still has work queued goes behind it, whatever its priority, so a key never overtakes itself.
+ * <p>
+ * Work can also cover several keys of one lane (a slice of a consumer batch). It goes to the bulk queue when
+ * any of its keys has bulk work queued, and then waits until the live work queued before it for its keys ran.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeyOrderedDispatcher {
+
+    private final DispatchProperties dispatchProperties;
+    private final Environment environment;
+
+    private final LongAdder[] executed = {new LongAdder(), new LongAdder()};
+    private Lane[] lanes;
+
+    @PostConstruct
+    public void init() {
+        if (!dispatchProperties.isEnabled()) {
+            return;
+        }
+        boolean virtual = Threading.VIRTUAL.isActive(environment);
+        lanes = new Lane[dispatchProperties.getLanes()];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "crm-cdc-lane-" + i;
+            ThreadFactory threadFactory = virtual
+                ? new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory()
+                : runnable -> new Thread(runnable, name);
+            lanes[i] = new Lane(dispatchProperties.getLiveShare(), executed);
+            threadFactory.newThread(lanes[i]).start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return lanes != null;
+    }
+
+    public CompletableFuture<Void> dispatch(long key, Supplier<CompletableFuture<Void>> task) {
+        return dispatch(key, Priority.LIVE, task);
+    }
+
+    public CompletableFuture<Void> dispatch(long key, Priority priority, Supplier<CompletableFuture<Void>> task) {
+        return dispatch(new long[] {key}, priority, task);
+    }
+
+    /**
+     * Runs one task for several keys, in order with the other work of each of them.
+     *
+     * @param keys keys of one lane, see {@link #lane(long)}.
+     * @throws IllegalArgumentException when the keys are on different lanes.
+     */
+    public CompletableFuture<Void> dispatch(long[] keys, Priority priority, Supplier<CompletableFuture<Void>> task) {
+        if (lanes == null) {
+            return task.get();
+        }
+        int lane = lane(keys[0]);
+        for (long key : keys) {
+            if (lane(key) != lane) {
+                throw new IllegalArgumentException("Keys " + keys[0] + " and " + key + " are on different lanes");
+            }
+        }
+        var queued = new Task(Arrays.stream(keys).distinct().toArray(), priority, task);
+        lanes[lane].submit(queued);
+        return queued.result;
+    }
+
+    /**
+     * @return lane running the work of the key, 0 when the dispatcher is disabled.
+     */
+    public int lane(long key) {
+        return lanes == null ? 0 : lane(key, lanes.length);
+    }
+
+    /**
+     * Spreads keys evenly over {@code lanes}, also used to pick the publisher channel for a key.
+     */
+    public static int lane(long key, int lanes) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (mixed ^ (mixed >>> 32)), lanes);
+    }
+
+    /**
+     * @return work of the priority queued on all lanes.
+     */
+    public int pending(Priority priority) {
+        int pending = 0;
+        if (lanes != null) {
+            for (Lane lane : lanes) {
+                pending += lane.pending(priority);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * @return milliseconds the oldest queued work of the priority has been waiting, 0 when none waits.
+     */
+    public long lag(Priority priority) {
+        long oldest = 0;
+        if (lanes != null) {
+            long now = System.nanoTime();
+            for (Lane lane : lanes) {
+                oldest = Math.max(oldest, lane.waiting(priority, now));
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(oldest);
+    }
+
+    /**
+     * @return work of the priority started since startup.
+     */
+    public long executed(Priority priority) {
+        return executed[priority.ordinal()].sum();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (lanes != null) {
+            for (Lane lane : lanes) {
+                lane.shutdown();
+            }
+        }
+    }
+
+    private static final class Task {
+
+        private final long[] keys;
+        private final Supplier<CompletableFuture<Void>> work;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private final long queuedNanos = System.nanoTime();
+        private Priority priority;
+        // Submission order on the lane
+        private long sequence;
+
+        private Task(long[] keys, Priority priority, Supplier<CompletableFuture<Void>> work) {
+            this.keys = keys;
+            this.priority = priority;
+            this.work = work;
+        }
+
+        private void run() {
+            try {
+                work.get().whenComplete((done, error) -> {
+                    if (error == null) {
+                        result.complete(null);
+                    } else {
+                        result.completeExceptionally(error);
+                    }
+                });
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Queued work of one key: sequences per queue, oldest first, and the queue of its latest work.
+     */
+    private static final class QueuedKey {
+
+        @SuppressWarnings("unchecked")
+        private final ArrayDeque<Long>[] sequences = new ArrayDeque[] {new ArrayDeque<Long>(), new ArrayDeque<Long>()};
+        private Priority latest;
+
+        private boolean isEmpty() {
+            return sequences[0].isEmpty() && sequences[1].isEmpty();
+        }
+    }
+
+    private static final class Lane implements Runnable {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition queued = lock.newCondition();
+        private final ArrayDeque<Task>[] queues = newQueues();
+        private final Map<Long, QueuedKey> queuedKeys = new HashMap<>();
+        private final double liveShare;
+        private final LongAdder[] executed;
+        // Live turns earned while both queues wait
+        private double liveCredit;
+        private long sequence;
+        private boolean stopped;
+
+        private Lane(double liveShare, LongAdder[] executed) {
+            this.liveShare = liveShare;
+            this.executed = executed;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static ArrayDeque<Task>[] newQueues() {
+            return new ArrayDeque[] {new ArrayDeque<Task>(), new ArrayDeque<Task>()};
+        }
+
+        private void submit(Task task) {
+            lock.lock();
+            try {
+                if (stopped) {
+                    task.result.completeExceptionally(new IllegalStateException("Dispatcher is shut down"));
+                    return;
+                }
+                task.priority = queueFor(task);
+                task.sequence = sequence++;
+                for (long key : task.keys) {
+                    QueuedKey queuedKey = queuedKeys.computeIfAbsent(key, ignored -> new QueuedKey());
+                    queuedKey.sequences[task.priority.ordinal()].addLast(task.sequence);
+                    queuedKey.latest = task.priority;
+                }
+                queues[task.priority.ordinal()].addLast(task);
+                queued.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return queue of the keys' latest queued work, bulk when that differs between keys, otherwise the
+         * task's own priority.
+         */
+        private Priority queueFor(Task task) {
+            Priority queue = null;
+            for (long key : task.keys) {
+                QueuedKey queuedKey = queuedKeys.get(key);
+                if (queuedKey != null && queue != Priority.BULK) {
+                    queue = queuedKey.latest;
+                }
+            }
+            return queue == null ? task.priority : queue;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                lock.lock();
+                try {
+                    while (isEmpty() && !stopped) {
+                        queued.awaitUninterruptibly();
+                    }
+                    if (isEmpty()) {
+                        return;
+                    }
+                    task = next();
+                    for (long key : task.keys) {
+                        QueuedKey queuedKey = queuedKeys.get(key);
+                        queuedKey.sequences[task.priority.ordinal()].pollFirst();
+                        if (queuedKey.isEmpty()) {
+                            queuedKeys.remove(key);
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                executed[task.priority.ordinal()].increment();
+                task.run();
+            }
+        }
+
+        /**
+         * Weighted round robin: with {@code liveShare} 0.8, four live tasks run for every bulk task while both
+         * wait. A queue alone gets every turn. When the picked head must wait for older work of one of its keys
+         * in the other queue, the other head runs; both cannot wait on each other.
+         */
+        private Task next() {
+            ArrayDeque<Task> live = queues[Priority.LIVE.ordinal()];
+            ArrayDeque<Task> bulk = queues[Priority.BULK.ordinal()];
+            if (bulk.isEmpty()) {
+                return live.pollFirst();
+            }
+            if (live.isEmpty()) {
+                return bulk.pollFirst();
+            }
+            liveCredit += liveShare;
+            ArrayDeque<Task> picked = bulk;
+            if (liveCredit >= 1) {
+                liveCredit -= 1;
+                picked = live;
+            }
+            if (waitsForOtherQueue(picked.peekFirst())) {
+                picked = picked == live ? bulk : live;
+            }
+            return picked.pollFirst();
+        }
+
+        private boolean waitsForOtherQueue(Task task) {
+            int other = 1 - task.priority.ordinal();
+            for (long key : task.keys) {
+                Long oldest = queuedKeys.get(key).sequences[other].peekFirst();
+                if (oldest != null && oldest < task.sequence) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isEmpty() {
+            return queues[0].isEmpty() && queues[1].isEmpty();
+        }
+
+        private int pending(Priority priority) {
+            lock.lock();
+            try {
+                return queues[priority.ordinal()].size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long waiting(Priority priority, long now) {
+            lock.lock();
+            try {
+                Task oldest = queues[priority.ordinal()].peekFirst();
+                return oldest == null ? 0 : now - oldest.queuedNanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Runs the queued work, then ends the lane thread.
+         */
+        private void shutdown() {
+            lock.lock();
+            try {
+                stopped = true;
+                queued.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.service;
+
+import com.example.service.mapping.RowChangeEvent;
+
+/**
+ * Mapped change event with its routing key suffix, ready to be published. Events with the same
+ * partition key are published in order.
+ */
+public record OutboundEvent(RowChangeEvent<?> event, String routingKeySuffix, long partitionKey) {
+}
@@ -0,0 +1,23 @@
+package com.example.service;
+
+/**
+ * Scheduling class of CDC work on the key-ordered lanes, see {@link KeyOrderedDispatcher}.
+ */
+public enum Priority {
+
+    /**
+     * Live changes, guaranteed {@code crm.dispatch.liveShare} of every lane.
+     */
+    LIVE,
+    /**
+     * Snapshot reads and the tail of large source transactions.
+     */
+    BULK;
+
+    /**
+     * @return meter tag value.
+     */
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
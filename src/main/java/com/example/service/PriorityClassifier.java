@@ -0,0 +1,47 @@
+package com.example.service;
+
+import com.example.config.DispatchProperties;
+import com.example.model.queue.DebeziumChangeEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tells live changes from bulk traffic on the change queues. Snapshot reads are bulk. So is a large source
+ * transaction, e.g. a back-office batch, from its {@code crm.dispatch.bulkTransactionEvents}th event on.
+ * Debezium streams a transaction's events together, so only recently seen transactions are counted: the
+ * least recently seen one is dropped once more are tracked, never one still receiving events.
+ */
+@Component
+@RequiredArgsConstructor
+public class PriorityClassifier {
+
+    private static final int TRACKED_TRANSACTIONS = 1024;
+
+    private final DispatchProperties dispatchProperties;
+
+    // Access order: the least recently seen transaction comes first
+    private final Map<Long, Integer> transactionEvents = new LinkedHashMap<>(TRACKED_TRANSACTIONS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            return size() > TRACKED_TRANSACTIONS;
+        }
+    };
+
+    public Priority classify(DebeziumChangeEvent<?> event) {
+        if ("r".equals(event.getOperation())) {
+            return Priority.BULK;
+        }
+        Long txId = event.getSource().getTxId();
+        if (txId == null || dispatchProperties.getBulkTransactionEvents() <= 0) {
+            return Priority.LIVE;
+        }
+        int events;
+        synchronized (transactionEvents) {
+            events = transactionEvents.merge(txId, 1, Integer::sum);
+        }
+        return events > dispatchProperties.getBulkTransactionEvents() ? Priority.BULK : Priority.LIVE;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.service;
+
+import com.example.config.CoalescingProperties;
+import com.example.service.mapping.RowChangeEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.model.queue.CustomerChangeEventType.UPDATE;
+
+/**
+ * Merges updates of one row (table + id) arriving within the coalescing window into a single event with
+ * the first {@code before}, the latest {@code after} and the union of changed fields. Inserts and deletes
+ * flush a pending update of their row first and are published right away, so order per row is kept.
+ * Runs on the key-ordered lanes: every call for a row and partition key, including the window flush, happens
+ * on their lane. An update with another partition key than the pending one flushes it instead of merging.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpdateCoalescer {
+
+    private static final CompletableFuture<Void> NOTHING_TO_SEND = CompletableFuture.completedFuture(null);
+
+    private final CoalescingProperties coalescingProperties;
+    private final KeyOrderedDispatcher keyOrderedDispatcher;
+    private final CrmChangeEventSender crmChangeEventSender;
+
+    private final Map<RowKey, PendingUpdate> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flushes;
+
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            flushes = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "crm-coalescing-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private boolean isEnabled() {
+        return coalescingProperties.isEnabled() && keyOrderedDispatcher.isEnabled();
+    }
+
+    /**
+     * @return completed once the (possibly merged) event carrying this change is confirmed.
+     */
+    public CompletableFuture<Void> submit(OutboundEvent outbound) {
+        if (outbound == null) {
+            return NOTHING_TO_SEND;
+        }
+        if (flushes == null) {
+            return crmChangeEventSender.send(outbound);
+        }
+
+        RowChangeEvent<?> event = outbound.event();
+        var key = new RowKey(event.getTable(), event.getId());
+        PendingUpdate update = pending.get(key);
+        if (event.getType() != UPDATE) {
+            if (update != null) {
+                flush(key, update);
+            }
+            return crmChangeEventSender.send(outbound);
+        }
+
+        if (update != null) {
+            if (update.outbound.partitionKey() == outbound.partitionKey()) {
+                update.outbound.event().merge(event);
+                return update.published;
+            }
+            // The row moved to another partition key (e.g. a new customer_id): the pending update is flushed
+            // by another lane, so it is published now instead of merged
+            flush(key, update);
+        }
+        if (pending.size() >= coalescingProperties.getMaxPending()) {
+            return crmChangeEventSender.send(outbound);
+        }
+
+        var created = new PendingUpdate(outbound);
+        pending.put(key, created);
+        flushes.schedule(
+            () -> keyOrderedDispatcher.dispatch(outbound.partitionKey(), () -> {
+                flush(key, created);
+                return NOTHING_TO_SEND;
+            }),
+            coalescingProperties.getWindow(),
+            TimeUnit.MILLISECONDS
+        );
+        return created.published;
+    }
+
+    /**
+     * Publishes events of keys sharing a publisher channel back to back, or one by one through
+     * {@link #submit} while coalescing is enabled.
+     *
+     * @return one future per event, in input order.
+     */
+    public List<CompletableFuture<Void>> submitAll(List<OutboundEvent> events, long orderingKey) {
+        if (flushes == null) {
+            return crmChangeEventSender.sendAll(events, orderingKey);
+        }
+        var submitted = new ArrayList<CompletableFuture<Void>>(events.size());
+        for (OutboundEvent outbound : events) {
+            submitted.add(submit(outbound));
+        }
+        return submitted;
+    }
+
+    private void flush(RowKey key, PendingUpdate update) {
+        if (!pending.remove(key, update)) {
+            return;
+        }
+        crmChangeEventSender.send(update.outbound).whenComplete((result, error) -> {
+            if (error == null) {
+                update.published.complete(null);
+            } else {
+                update.published.completeExceptionally(error);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushes != null) {
+            flushes.shutdownNow();
+        }
+    }
+
+    private record RowKey(String table, Long id) {
+    }
+
+    private static final class PendingUpdate {
+
+        private final OutboundEvent outbound;
+        private final CompletableFuture<Void> published = new CompletableFuture<>();
+
+        private PendingUpdate(OutboundEvent outbound) {
+            this.outbound = outbound;
+        }
+    }
+}
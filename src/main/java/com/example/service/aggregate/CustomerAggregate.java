@@ -0,0 +1,15 @@
+package com.example.service.aggregate;
+
+import com.example.service.publish.OutboundBody;
+
+/**
+ * Current state of one customer aggregate, ready to be published.
+ */
+public record CustomerAggregate(long customerId, String orgCode, OutboundBody body) {
+
+    private static final String STREAM = "customerAggregate";
+
+    public String routingKeySuffix() {
+        return STREAM + '.' + (orgCode == null ? CustomerOrgIndex.UNKNOWN_ORG_CODE : orgCode);
+    }
+}
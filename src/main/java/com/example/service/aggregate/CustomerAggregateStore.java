@@ -0,0 +1,323 @@
+package com.example.service.aggregate;
+
+import com.example.config.AggregateProperties;
+import com.example.service.mapping.RowChangeEvent;
+import com.example.service.mapping.TableMapper;
+import com.example.service.mapping.TableMapping;
+import com.example.service.publish.ChangeEventWriter;
+import com.example.service.publish.OutboundBody;
+import com.example.service.publish.OutboundFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.example.model.queue.CustomerChangeEventType.DELETE;
+
+/**
+ * Materialized customer aggregates, keyed by customer id. Each aggregate is a single byte array of entries
+ * {@code [section:1][id:8][length:4][record:CBOR]}, the root entry first. A primitive index maps customer ids
+ * to slots, so a customer costs its encoded rows plus a few dozen bytes.
+ * Changes of one customer are applied under its stripe lock, the index has its own read/write lock.
+ */
+@Component
+public class CustomerAggregateStore {
+
+    private static final int STRIPES = 256;
+    private static final int ENTRY_HEADER = 1 + Long.BYTES + Integer.BYTES;
+    private static final byte[] EMPTY = new byte[0];
+    private static final SerializableString CUSTOMER_ID = new SerializedString("customerId");
+
+    private final boolean enabled;
+    private final boolean emitEvents;
+    private final String[] sections;
+    private final SerializableString[] encodedSections;
+    private final int rootSection;
+    private final ChangeEventWriter changeEventWriter;
+    private final CBORFactory cborFactory = new CBORFactory();
+    private final Object[] stripes = new Object[STRIPES];
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final LongIntMap index;
+    private final Map<String, String> orgCodes = new ConcurrentHashMap<>();
+    private final AtomicLong recordBytes = new AtomicLong();
+    private byte[][] aggregates;
+    private String[] aggregateOrgCodes;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+
+    public CustomerAggregateStore(AggregateProperties aggregateProperties, List<TableMapping<?>> tableMappings,
+                                  ChangeEventWriter changeEventWriter) {
+        this.enabled = aggregateProperties.isEnabled();
+        this.emitEvents = aggregateProperties.isEmitEvents();
+        this.changeEventWriter = changeEventWriter;
+
+        var names = new ArrayList<String>();
+        int root = -1;
+        for (TableMapping<?> mapping : tableMappings) {
+            if (mapping.getAggregateSection() == null) {
+                continue;
+            }
+            if (mapping.isAggregateRoot()) {
+                if (root >= 0) {
+                    throw new IllegalStateException("More than one aggregate root: " + mapping.getInputTable());
+                }
+                root = names.size();
+            }
+            names.add(mapping.getAggregateSection());
+        }
+        if (root < 0 && !names.isEmpty()) {
+            throw new IllegalStateException("Aggregate sections " + names + " without a root");
+        }
+        this.sections = names.toArray(String[]::new);
+        this.encodedSections = names.stream().map(SerializedString::new).toArray(SerializableString[]::new);
+        this.rootSection = root;
+
+        int capacity = enabled ? aggregateProperties.getInitialCapacity() : 8;
+        this.index = new LongIntMap(capacity);
+        this.aggregates = new byte[capacity][];
+        this.aggregateOrgCodes = new String[capacity];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Applies a change to the aggregate of the customer it belongs to.
+     *
+     * @param emit whether the caller wants the new state, e.g. not for snapshot rows.
+     * @return the aggregate to publish, or {@code null} when events are off or the customer row is not known yet.
+     */
+    public <T> CustomerAggregate apply(RowChangeEvent<T> event, boolean emit) {
+        TableMapper<T> mapper = event.getMapper();
+        if (!enabled || mapper.getAggregateSection() == null || event.getId() == null) {
+            return null;
+        }
+        int section = section(mapper.getAggregateSection());
+        boolean delete = event.getType() == DELETE;
+        T row = delete ? event.getBefore() : event.getAfter();
+        long customerId = mapper.partitionKey(row);
+        byte[] record = delete ? null : changeEventWriter.encode(generator -> mapper.writeRecord(row, generator), OutboundFormat.CBOR);
+        boolean publish = emit && emitEvents;
+
+        synchronized (stripes[stripe(customerId)]) {
+            if (delete && section == rootSection) {
+                CustomerAggregate removed = remove(customerId);
+                return publish ? removed : null;
+            }
+            int slot = delete ? find(customerId) : findOrCreate(customerId);
+            if (slot < 0) {
+                return null;
+            }
+            byte[] updated;
+            String orgCode;
+            indexLock.readLock().lock();
+            try {
+                byte[] current = aggregates[slot];
+                updated = replace(current, section, event.getId(), record);
+                aggregates[slot] = updated;
+                recordBytes.addAndGet(updated.length - current.length);
+                if (section == rootSection) {
+                    String value = mapper.orgCode(row);
+                    aggregateOrgCodes[slot] = value == null ? null : orgCodes.computeIfAbsent(value, code -> code);
+                }
+                orgCode = aggregateOrgCodes[slot];
+            } finally {
+                indexLock.readLock().unlock();
+            }
+            return publish && hasRoot(updated) ? new CustomerAggregate(customerId, orgCode, body(customerId, updated)) : null;
+        }
+    }
+
+    /**
+     * @return the aggregate, or {@code null} when the customer is not known.
+     */
+    public CustomerAggregate get(long customerId) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (stripes[stripe(customerId)]) {
+            int slot = find(customerId);
+            if (slot < 0) {
+                return null;
+            }
+            indexLock.readLock().lock();
+            try {
+                return new CustomerAggregate(customerId, aggregateOrgCodes[slot], body(customerId, aggregates[slot]));
+            } finally {
+                indexLock.readLock().unlock();
+            }
+        }
+    }
+
+    public AggregateStats stats() {
+        indexLock.readLock().lock();
+        try {
+            long indexBytes = (long) index.capacity() * (Long.BYTES + Integer.BYTES)
+                + (long) aggregates.length * 2 * Integer.BYTES;
+            return new AggregateStats(index.size(), recordBytes.get(), indexBytes);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private int find(long customerId) {
+        indexLock.readLock().lock();
+        try {
+            return index.get(customerId);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private int findOrCreate(long customerId) {
+        int slot = find(customerId);
+        if (slot >= 0) {
+            return slot;
+        }
+        indexLock.writeLock().lock();
+        try {
+            slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+            if (slot == aggregates.length) {
+                aggregates = Arrays.copyOf(aggregates, slot * 2);
+                aggregateOrgCodes = Arrays.copyOf(aggregateOrgCodes, slot * 2);
+            }
+            aggregates[slot] = EMPTY;
+            index.put(customerId, slot);
+            return slot;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the empty aggregate left behind, or {@code null} when the customer was not known.
+     */
+    private CustomerAggregate remove(long customerId) {
+        indexLock.writeLock().lock();
+        try {
+            int slot = index.remove(customerId);
+            if (slot < 0) {
+                return null;
+            }
+            String orgCode = aggregateOrgCodes[slot];
+            recordBytes.addAndGet(-aggregates[slot].length);
+            aggregates[slot] = null;
+            aggregateOrgCodes[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+            return new CustomerAggregate(customerId, orgCode, body(customerId, EMPTY));
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private int section(String name) {
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Unknown aggregate section " + name);
+    }
+
+    private static int stripe(long customerId) {
+        return (int) (customerId ^ (customerId >>> 32)) & (STRIPES - 1);
+    }
+
+    /**
+     * Copies all entries except the one of {@code section}/{@code id}, then adds {@code record} unless it is
+     * {@code null}. The root entry is kept first.
+     */
+    private byte[] replace(byte[] aggregate, int section, long id, byte[] record) {
+        var source = ByteBuffer.wrap(aggregate);
+        var target = ByteBuffer.allocate(aggregate.length + (record == null ? 0 : ENTRY_HEADER + record.length));
+        if (record != null && section == rootSection) {
+            putEntry(target, section, id, record);
+        }
+        while (source.hasRemaining()) {
+            int entrySection = source.get();
+            long entryId = source.getLong();
+            int length = source.getInt();
+            if (entrySection != section || entryId != id) {
+                target.put((byte) entrySection).putLong(entryId).putInt(length).put(aggregate, source.position(), length);
+            }
+            source.position(source.position() + length);
+        }
+        if (record != null && section != rootSection) {
+            putEntry(target, section, id, record);
+        }
+        return target.position() == target.capacity() ? target.array() : Arrays.copyOf(target.array(), target.position());
+    }
+
+    private static void putEntry(ByteBuffer target, int section, long id, byte[] record) {
+        target.put((byte) section).putLong(id).putInt(record.length).put(record);
+    }
+
+    private boolean hasRoot(byte[] aggregate) {
+        return aggregate.length > 0 && aggregate[0] == rootSection;
+    }
+
+    /**
+     * Aggregate document: the customer id, the root record (or {@code null}) and one array per other section.
+     */
+    private OutboundBody body(long customerId, byte[] aggregate) {
+        return generator -> {
+            generator.writeStartObject();
+            generator.writeFieldName(CUSTOMER_ID);
+            generator.writeNumber(customerId);
+            for (int section = 0; section < sections.length; section++) {
+                generator.writeFieldName(encodedSections[section]);
+                if (section == rootSection) {
+                    if (hasRoot(aggregate)) {
+                        copyRecord(generator, aggregate, ENTRY_HEADER, ByteBuffer.wrap(aggregate).getInt(1 + Long.BYTES));
+                    } else {
+                        generator.writeNull();
+                    }
+                    continue;
+                }
+                generator.writeStartArray();
+                var source = ByteBuffer.wrap(aggregate);
+                while (source.hasRemaining()) {
+                    int entrySection = source.get();
+                    source.getLong();
+                    int length = source.getInt();
+                    if (entrySection == section) {
+                        copyRecord(generator, aggregate, source.position(), length);
+                    }
+                    source.position(source.position() + length);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        };
+    }
+
+    private void copyRecord(JsonGenerator generator, byte[] aggregate, int offset, int length) throws IOException {
+        try (JsonParser parser = cborFactory.createParser(aggregate, offset, length)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+    public record AggregateStats(int customers, long recordBytes, long indexBytes) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.service.aggregate;
+
+import com.example.config.RoutingProperties;
+import com.example.service.mapping.TableMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Customer id to org code, fed by customer events and optionally seeded from the database. Org codes are
+ * few, so each customer costs a primitive key and an int ordinal.
+ */
+@Component
+public class CustomerOrgIndex {
+
+    /**
+     * Routing key segment of customers whose org code is not known (not seen or seeded yet, or none set).
+     */
+    public static final String UNKNOWN_ORG_CODE = "unknown";
+
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntMap index = new LongIntMap(1 << 16);
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private String[] orgCodes = new String[16];
+
+    public CustomerOrgIndex(RoutingProperties routingProperties) {
+        this.enabled = routingProperties.isChildOrgCode();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records the org code of a customer row. Rows of other tables are ignored.
+     */
+    public <T> void accept(TableMapper<T> mapper, T row) {
+        if (!enabled || row == null || !mapper.isAggregateRoot()) {
+            return;
+        }
+        Long customerId = mapper.id(row);
+        if (customerId != null) {
+            put(customerId, mapper.orgCode(row));
+        }
+    }
+
+    public void put(long customerId, String orgCode) {
+        lock.writeLock().lock();
+        try {
+            if (orgCode == null) {
+                index.remove(customerId);
+                return;
+            }
+            Integer ordinal = ordinals.get(orgCode);
+            if (ordinal == null) {
+                ordinal = ordinals.size();
+                if (ordinal == orgCodes.length) {
+                    orgCodes = Arrays.copyOf(orgCodes, ordinal * 2);
+                }
+                orgCodes[ordinal] = orgCode;
+                ordinals.put(orgCode, ordinal);
+            }
+            index.put(customerId, ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the org code, or {@code null} when the customer is not known.
+     */
+    public String orgCode(Long customerId) {
+        if (customerId == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int ordinal = index.get(customerId);
+            return ordinal < 0 ? null : orgCodes[ordinal];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the org code as routing key segment, {@link #UNKNOWN_ORG_CODE} when the customer is not known.
+     */
+    public String routingSegment(Long customerId) {
+        String orgCode = orgCode(customerId);
+        return orgCode == null ? UNKNOWN_ORG_CODE : orgCode;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
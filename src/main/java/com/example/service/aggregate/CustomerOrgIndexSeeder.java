@@ -0,0 +1,62 @@
+package com.example.service.aggregate;
+
+import com.example.config.RoutingProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Loads all customer org codes into {@link CustomerOrgIndex} before the listeners start, so child events
+ * of customers that did not change since startup are routed too. Skipped when there is no datasource.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CustomerOrgIndexSeeder {
+
+    private static final String QUERY = "SELECT id, source_org_code FROM crm.customer WHERE source_org_code IS NOT NULL";
+
+    private final CustomerOrgIndex customerOrgIndex;
+    private final RoutingProperties routingProperties;
+    private final ObjectProvider<DataSource> dataSource;
+
+    @PostConstruct
+    public void seed() {
+        if (!customerOrgIndex.isEnabled() || !routingProperties.isSeedOrgCodes()) {
+            return;
+        }
+        DataSource source = dataSource.getIfAvailable();
+        if (source == null) {
+            log.info("No datasource, customer org codes are learned from customer events only");
+            return;
+        }
+
+        long started = System.nanoTime();
+        // Postgres only streams with a cursor inside a transaction
+        try (Connection connection = source.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(QUERY)) {
+                statement.setFetchSize(routingProperties.getSeedFetchSize());
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        customerOrgIndex.put(rows.getLong(1), rows.getString(2));
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            log.warn("Could not seed customer org codes, they are learned from customer events only", e);
+            return;
+        }
+        log.info("Seeded {} customer org codes in {} ms", customerOrgIndex.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+}
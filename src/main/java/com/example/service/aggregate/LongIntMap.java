@@ -0,0 +1,112 @@
+package com.example.service.aggregate;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing {@code long -> int} map with linear probing and backward shift deletion.
+ * Values must be non-negative. Not thread safe.
+ */
+final class LongIntMap {
+
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntMap(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity, 8) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return the value, or {@code -1} when absent.
+     */
+    int get(long key) {
+        for (int index = hash(key); ; index = (index + 1) & mask) {
+            if (values[index] == EMPTY) {
+                return EMPTY;
+            }
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 4L > keys.length * 3L) {
+            resize();
+        }
+        for (int index = hash(key); ; index = (index + 1) & mask) {
+            if (values[index] == EMPTY) {
+                keys[index] = key;
+                values[index] = value;
+                size++;
+                return;
+            }
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the removed value, or {@code -1} when absent.
+     */
+    int remove(long key) {
+        int index = hash(key);
+        while (values[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        int removed = values[index];
+        if (removed == EMPTY) {
+            return EMPTY;
+        }
+        size--;
+        // Shift following entries of the cluster back, so lookups never stop early
+        for (int next = (index + 1) & mask; values[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]);
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+        }
+        values[index] = EMPTY;
+        return removed;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
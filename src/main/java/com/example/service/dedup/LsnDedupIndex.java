@@ -0,0 +1,153 @@
+package com.example.service.dedup;
+
+import com.example.config.DedupProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded index of the last forwarded LSN per row (table + primary key), kept in primitive arrays.
+ * The arrays form a 4-way set associative cache: a row maps to one set of four slots and, when the set is
+ * full, the slot with the oldest LSN is replaced. A forgotten row only means a duplicate is not detected.
+ * <p>
+ * A row whose publish failed keeps a failure floor: events from that LSN on are forwarded even when a later
+ * event of the row was confirmed meanwhile, so the redelivery of the failed one isn't taken for a duplicate.
+ * The floor is cleared once an event at exactly that LSN is confirmed.
+ */
+@Component
+public class LsnDedupIndex {
+
+    private static final int WAYS = 4;
+    private static final int STRIPES = 64;
+
+    private final boolean enabled;
+    private final int setMask;
+    private final long[] keys;
+    private final int[] tables;
+    private final long[] lsns;
+    private final long[] failed;
+    private final Object[] locks = new Object[STRIPES];
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    public LsnDedupIndex(DedupProperties dedupProperties) {
+        this.enabled = dedupProperties.isEnabled();
+        int sets = Integer.highestOneBit(Math.max(dedupProperties.getCapacity() / WAYS - 1, 1)) << 1;
+        int slots = enabled ? sets * WAYS : 0;
+        this.setMask = sets - 1;
+        this.keys = new long[slots];
+        this.tables = new int[slots];
+        this.lsns = new long[slots];
+        this.failed = new long[slots];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return true when an event of this row with the same or a later LSN was already forwarded.
+     */
+    public boolean isDuplicate(String table, long key, Long lsn) {
+        if (!enabled || lsn == null) {
+            return false;
+        }
+        lookups.increment();
+        int tableHash = table.hashCode();
+        int set = set(tableHash, key);
+        synchronized (locks[set & (STRIPES - 1)]) {
+            int base = set * WAYS;
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (lsns[slot] != 0 && keys[slot] == key && tables[slot] == tableHash) {
+                    if (lsns[slot] >= lsn && (failed[slot] == 0 || lsn < failed[slot])) {
+                        duplicates.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remembers the LSN of a forwarded event. Call only after the publish was confirmed, so a failed publish
+     * is not mistaken for a duplicate when it is redelivered.
+     */
+    public void record(String table, long key, Long lsn) {
+        if (!enabled || lsn == null) {
+            return;
+        }
+        int tableHash = table.hashCode();
+        int set = set(tableHash, key);
+        synchronized (locks[set & (STRIPES - 1)]) {
+            int base = set * WAYS;
+            int victim = base;
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (lsns[slot] != 0 && keys[slot] == key && tables[slot] == tableHash) {
+                    lsns[slot] = Math.max(lsns[slot], lsn);
+                    if (failed[slot] == lsn) {
+                        failed[slot] = 0;
+                    }
+                    return;
+                }
+                if (lsns[slot] < lsns[victim]) {
+                    victim = slot;
+                }
+            }
+            keys[victim] = key;
+            tables[victim] = tableHash;
+            lsns[victim] = lsn;
+            failed[victim] = 0;
+        }
+    }
+
+    /**
+     * Remembers that the publish of an event failed, so its redelivery is forwarded even if a later event of
+     * the row is confirmed first.
+     */
+    public void recordFailure(String table, long key, Long lsn) {
+        if (!enabled || lsn == null) {
+            return;
+        }
+        int tableHash = table.hashCode();
+        int set = set(tableHash, key);
+        synchronized (locks[set & (STRIPES - 1)]) {
+            int base = set * WAYS;
+            int victim = base;
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (lsns[slot] != 0 && keys[slot] == key && tables[slot] == tableHash) {
+                    failed[slot] = failed[slot] == 0 ? lsn : Math.min(failed[slot], lsn);
+                    return;
+                }
+                if (lsns[slot] < lsns[victim]) {
+                    victim = slot;
+                }
+            }
+            // Tracked from here on, so a later confirm of the row can't hide the failure
+            keys[victim] = key;
+            tables[victim] = tableHash;
+            lsns[victim] = lsn;
+            failed[victim] = lsn;
+        }
+    }
+
+    public DedupStats stats() {
+        long lookupCount = lookups.sum();
+        long duplicateCount = duplicates.sum();
+        return new DedupStats(
+            lookupCount,
+            duplicateCount,
+            lookupCount == 0 ? 0 : (double) duplicateCount / lookupCount,
+            keys.length,
+            (long) keys.length * (Long.BYTES + Integer.BYTES + 2 * Long.BYTES)
+        );
+    }
+
+    private int set(int tableHash, long key) {
+        long mixed = (key ^ ((long) tableHash << 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & setMask;
+    }
+
+    public record DedupStats(long lookups, long duplicates, double hitRate, int capacity, long memoryBytes) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.service.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Pre-parsed routing key. The first segment is the stream name, the rest are literals or
+ * {@code {field}} placeholders resolved from the row. Init streams insert their segment after the
+ * stream name, e.g. {@code customer.init_registry.{orgCode}.v1}.
+ */
+final class RoutingKeyTemplate<T> {
+
+    private final String prefix;
+    private final String[] literals;
+    private final Function<T, ?>[] accessors;
+    private final List<String> fieldNames = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    RoutingKeyTemplate(String template, Map<String, Function<T, ?>> fields) {
+        String[] segments = template.split("\\.");
+        this.prefix = segments[0];
+        this.literals = new String[segments.length - 1];
+        this.accessors = new Function[segments.length - 1];
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                String field = segment.substring(1, segment.length() - 1);
+                fieldNames.add(field);
+                accessors[i - 1] = fields.get(field);
+                if (accessors[i - 1] == null) {
+                    throw new IllegalStateException("Unknown routing key field " + field + " in " + template);
+                }
+            } else {
+                literals[i - 1] = segment;
+            }
+        }
+    }
+
+    /**
+     * @return names of the placeholders, in key order.
+     */
+    List<String> fieldNames() {
+        return fieldNames;
+    }
+
+    String render(T row, String streamSegment, String version) {
+        var routingKey = new StringBuilder(64).append(prefix);
+        if (streamSegment != null) {
+            routingKey.append('.').append(streamSegment);
+        }
+        for (int i = 0; i < literals.length; i++) {
+            routingKey.append('.');
+            if (accessors[i] != null) {
+                routingKey.append(accessors[i].apply(row));
+            } else {
+                routingKey.append(literals[i]);
+            }
+        }
+        if (version != null) {
+            routingKey.append('.').append(version);
+        }
+        return routingKey.toString();
+    }
+}
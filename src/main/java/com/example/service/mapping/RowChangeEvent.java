@@ -0,0 +1,68 @@
+package com.example.service.mapping;
+
+import com.example.model.queue.CustomerChangeEventType;
+import com.example.service.publish.OutboundBody;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.Getter;
+
+import java.io.IOException;
+
+import static com.example.model.queue.CustomerChangeEventType.UPDATE;
+
+/**
+ * Outbound change event backed by the source rows. Nothing is copied into maps: the body is written
+ * straight from the rows by {@link TableMapper}. {@code changedFields} is a bitmask over the mapping's
+ * field indices.
+ */
+@Getter
+public final class RowChangeEvent<T> implements OutboundBody {
+
+    private final TableMapper<T> mapper;
+    private final CustomerChangeEventType type;
+    private final Long id;
+    private final T before;
+    private T after;
+    private long changedFields;
+
+    RowChangeEvent(TableMapper<T> mapper, CustomerChangeEventType type, Long id, T before, T after, long changedFields) {
+        this.mapper = mapper;
+        this.type = type;
+        this.id = id;
+        this.before = before;
+        this.after = after;
+        this.changedFields = changedFields;
+    }
+
+    public String getTable() {
+        return mapper.getOutputTable();
+    }
+
+    public Class<?> getEventType() {
+        return mapper.getEventType();
+    }
+
+    /**
+     * Folds a later update of the same row into this one: the first {@code before} is kept, the latest
+     * {@code after} is taken and changed fields are combined.
+     */
+    @SuppressWarnings("unchecked")
+    public void merge(RowChangeEvent<?> later) {
+        if (type != UPDATE || later.mapper != mapper) {
+            throw new IllegalArgumentException("Only updates of the same table can be merged");
+        }
+        this.after = (T) later.after;
+        this.changedFields |= later.changedFields;
+    }
+
+    @Override
+    public void write(JsonGenerator generator) throws IOException {
+        mapper.write(this, generator, false);
+    }
+
+    /**
+     * Writes the delta form: same document, rows reduced to the changed and routing key fields.
+     */
+    public void writeDelta(JsonGenerator generator) throws IOException {
+        mapper.write(this, generator, true);
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.service.mapping;
+
+import com.example.config.QueueChangeProperties.QueueProperties;
+import com.example.model.queue.CustomerChangeEventDto;
+import com.example.service.publish.ChangeEventWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static com.example.model.queue.CustomerChangeEventType.DELETE;
+import static com.example.model.queue.CustomerChangeEventType.INSERT;
+import static com.example.model.queue.CustomerChangeEventType.UPDATE;
+
+/**
+ * Compiled {@link TableMapping}. Field accessors are flattened into arrays so building, diffing and
+ * mapping an event is a plain loop without lookups or reflection.
+ */
+public final class TableMapper<T> {
+
+    // Snapshot batches are JSON only
+    private static final String BATCH_VERSION = "v1";
+    private static final String INIT_SEGMENT = "init_registry";
+    private static final String INIT_BATCH_SEGMENT = "init_batch";
+    private static final String ORG_CODE_FIELD = "orgCode";
+
+    // CustomerChangeEventDto properties, in the order Jackson writes them
+    private static final SerializableString TABLE = new SerializedString("table");
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString BEFORE = new SerializedString("before");
+    private static final SerializableString AFTER = new SerializedString("after");
+    private static final SerializableString CHANGED_FIELDS = new SerializedString("changedFields");
+
+    @Getter
+    private final String inputTable;
+    @Getter
+    private final QueueProperties queue;
+    @Getter
+    private final Class<T> rowType;
+    @Getter
+    private final String outputTable;
+    @Getter
+    private final Class<? extends CustomerChangeEventDto> eventType;
+    @Getter
+    private final String aggregateSection;
+    @Getter
+    private final boolean aggregateRoot;
+    private final Function<T, Long> id;
+    private final Function<T, Long> partitionKey;
+    private final String[] names;
+    private final Function<T, ?>[] accessors;
+    private final long trackedFields;
+    private final long allFields;
+    private final long keyFields;
+    private final int orgCode;
+    private final RoutingKeyTemplate<T> routingKey;
+    private final SerializableString encodedTable;
+    private final SerializableString[] encodedNames;
+    private final String[] changedFieldHeaders;
+    private final SerializableString[] eventNames;
+    private final Function<T, ?>[] eventAccessors;
+    private final boolean eventFieldsFromBefore;
+
+    @SuppressWarnings("unchecked")
+    TableMapper(TableMapping<T> mapping) {
+        var fields = mapping.getFields();
+        if (fields.size() > Long.SIZE) {
+            throw new IllegalStateException("More than " + Long.SIZE + " fields in " + mapping.getInputTable());
+        }
+        var byName = new LinkedHashMap<String, Function<T, ?>>();
+        this.names = new String[fields.size()];
+        this.accessors = new Function[fields.size()];
+        this.encodedNames = new SerializableString[fields.size()];
+        this.changedFieldHeaders = new String[fields.size()];
+        long tracked = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            var field = fields.get(i);
+            if (byName.put(field.name(), field.accessor()) != null) {
+                throw new IllegalStateException("Duplicate field " + field.name() + " in " + mapping.getInputTable());
+            }
+            names[i] = field.name();
+            accessors[i] = field.accessor();
+            encodedNames[i] = new SerializedString(field.name());
+            changedFieldHeaders[i] = ChangeEventWriter.CHANGED_FIELD_HEADER_PREFIX + field.name();
+            if (field.tracked()) {
+                tracked |= 1L << i;
+            }
+        }
+        this.trackedFields = tracked;
+        this.allFields = fields.size() == Long.SIZE ? -1L : (1L << fields.size()) - 1;
+
+        var eventFields = mapping.getEventFields();
+        this.eventNames = new SerializableString[eventFields.size()];
+        this.eventAccessors = new Function[eventFields.size()];
+        for (int i = 0; i < eventFields.size(); i++) {
+            eventNames[i] = new SerializedString(eventFields.get(i).name());
+            eventAccessors[i] = eventFields.get(i).accessor();
+        }
+        this.eventFieldsFromBefore = mapping.isEventFieldsFromBefore();
+
+        this.inputTable = mapping.getInputTable();
+        this.queue = mapping.getQueue();
+        this.rowType = mapping.getRowType();
+        this.outputTable = mapping.getOutputTable();
+        this.eventType = mapping.getEventType();
+        this.aggregateSection = mapping.getAggregateSection();
+        this.aggregateRoot = mapping.isAggregateRoot();
+        this.id = mapping.getId();
+        this.partitionKey = mapping.getPartitionKey();
+        this.orgCode = Arrays.asList(names).indexOf(ORG_CODE_FIELD);
+        var routingFields = new LinkedHashMap<>(byName);
+        for (var field : mapping.getRoutingFields()) {
+            routingFields.put(field.name(), field.accessor());
+        }
+        this.routingKey = new RoutingKeyTemplate<>(mapping.getRoutingKey(), routingFields);
+        long keys = 0;
+        for (String field : routingKey.fieldNames()) {
+            int index = Arrays.asList(names).indexOf(field);
+            if (index >= 0) {
+                keys |= 1L << index;
+            }
+        }
+        this.keyFields = keys;
+        this.encodedTable = new SerializedString(outputTable);
+    }
+
+    public String getQueueName() {
+        return queue.getQueueName();
+    }
+
+    public Long id(T row) {
+        return row == null ? null : id.apply(row);
+    }
+
+    /**
+     * Events with the same partition key must be forwarded in order.
+     */
+    public long partitionKey(T row) {
+        Long key = row == null ? null : partitionKey.apply(row);
+        return key == null ? 0 : key;
+    }
+
+    /**
+     * Routing key without the version, the sender appends one per output format, e.g. {@code customer.ORG1}.
+     */
+    public String routingKey(T row) {
+        return routingKey.render(row, null, null);
+    }
+
+    public String initRoutingKey(T row) {
+        return routingKey.render(row, INIT_SEGMENT, null);
+    }
+
+    /**
+     * Routing key of multi-record snapshot messages. Snapshot rows reach {@code init_registry} consumers only
+     * while {@code crm.snapshot.singleRecords} is on.
+     */
+    public String initBatchRoutingKey(T row) {
+        return routingKey.render(row, INIT_BATCH_SEGMENT, BATCH_VERSION);
+    }
+
+    /**
+     * @return the row's org code, or {@code null} when the table has no {@code orgCode} field.
+     */
+    public String orgCode(T row) {
+        if (orgCode < 0 || row == null) {
+            return null;
+        }
+        Object value = accessors[orgCode].apply(row);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * @return header flagging the field at {@code index} as changed, e.g. {@code crm-changed-orgCode}.
+     */
+    public String changedFieldHeader(int index) {
+        return changedFieldHeaders[index];
+    }
+
+    /**
+     * Output fields of a single row, as sent in the {@code after} of an insert.
+     */
+    public Map<String, Object> toRecord(T row) {
+        var map = new HashMap<String, Object>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            map.put(names[i], accessors[i].apply(row));
+        }
+        return map;
+    }
+
+    public RowChangeEvent<T> toCreateEvent(T after) {
+        return new RowChangeEvent<>(this, INSERT, id.apply(after), null, after, allFields);
+    }
+
+    /**
+     * @return update event, or {@code null} when no tracked field changed.
+     */
+    public RowChangeEvent<T> toUpdateEvent(T before, T after) {
+        long changedFields = 0;
+        for (long remaining = trackedFields; remaining != 0; remaining &= remaining - 1) {
+            int index = Long.numberOfTrailingZeros(remaining);
+            if (!Objects.equals(accessors[index].apply(before), accessors[index].apply(after))) {
+                changedFields |= 1L << index;
+            }
+        }
+        if (changedFields == 0) {
+            return null;
+        }
+        return new RowChangeEvent<>(this, UPDATE, id.apply(after), before, after, changedFields);
+    }
+
+    public RowChangeEvent<T> toDeleteEvent(T before) {
+        return new RowChangeEvent<>(this, DELETE, id.apply(before), before, null, allFields);
+    }
+
+    /**
+     * Writes the event exactly as Jackson writes the {@link #getEventType() event DTO}: base properties,
+     * then the table specific ones. A missing {@code before}/{@code after} row is written as an empty object.
+     * Works for any Jackson format, the generator decides the encoding.
+     * <p>
+     * A {@code delta} event has the same shape, but its rows only hold what a consumer needs to apply it:
+     * updates the changed fields plus the row fields used in the routing key, deletes only the routing key
+     * fields and no changed fields. Inserts are written in full.
+     */
+    void write(RowChangeEvent<T> event, JsonGenerator generator, boolean delta) throws IOException {
+        long rowFields = allFields;
+        long changedFields = event.getChangedFields();
+        if (delta && event.getType() == UPDATE) {
+            rowFields = changedFields | keyFields;
+        } else if (delta && event.getType() == DELETE) {
+            rowFields = keyFields;
+            changedFields = 0;
+        }
+        generator.writeStartObject();
+        generator.writeFieldName(TABLE);
+        generator.writeString(encodedTable);
+        generator.writeFieldName(TYPE);
+        generator.writeString(event.getType().name());
+        generator.writeFieldName(ID);
+        writeValue(generator, event.getId());
+        generator.writeFieldName(BEFORE);
+        writeRow(generator, event.getBefore(), rowFields);
+        generator.writeFieldName(AFTER);
+        writeRow(generator, event.getAfter(), rowFields);
+        generator.writeFieldName(CHANGED_FIELDS);
+        generator.writeStartArray();
+        for (long remaining = changedFields; remaining != 0; remaining &= remaining - 1) {
+            generator.writeString(encodedNames[Long.numberOfTrailingZeros(remaining)]);
+        }
+        generator.writeEndArray();
+        T row = event.getType() == DELETE || event.getType() == UPDATE && eventFieldsFromBefore
+            ? event.getBefore()
+            : event.getAfter();
+        for (int i = 0; i < eventNames.length; i++) {
+            generator.writeFieldName(eventNames[i]);
+            writeValue(generator, eventAccessors[i].apply(row));
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the output fields of a row as one object, as in {@code after}.
+     */
+    public void writeRecord(T row, JsonGenerator generator) throws IOException {
+        writeRow(generator, row, allFields);
+    }
+
+    private void writeRow(JsonGenerator generator, T row, long fields) throws IOException {
+        generator.writeStartObject();
+        if (row != null) {
+            for (long remaining = fields; remaining != 0; remaining &= remaining - 1) {
+                int index = Long.numberOfTrailingZeros(remaining);
+                generator.writeFieldName(encodedNames[index]);
+                writeValue(generator, accessors[index].apply(row));
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String string) {
+            generator.writeString(string);
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Integer number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else {
+            // Dates and anything else go through the generator's ObjectMapper, as in the JSON converter
+            generator.writeObject(value);
+        }
+    }
+
+}
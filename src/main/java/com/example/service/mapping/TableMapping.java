@@ -0,0 +1,188 @@
+package com.example.service.mapping;
+
+import com.example.config.QueueChangeProperties.QueueProperties;
+import com.example.model.queue.CustomerChangeEventDto;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Declarative description of one tracked CDC table: where it is read from, which fields are
+ * forwarded (and diffed) and how the outbound routing key is built.
+ * Compiled once at startup into a {@link TableMapper}.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class TableMapping<T> {
+
+    private final Class<T> rowType;
+    private final String inputTable;
+    private final String outputTable;
+    private final QueueProperties queue;
+    private final String routingKey;
+    private final Function<T, Long> id;
+    private final Function<T, Long> partitionKey;
+    private final List<Field<T>> fields;
+    private final Class<? extends CustomerChangeEventDto> eventType;
+    private final List<Field<T>> eventFields;
+    private final boolean eventFieldsFromBefore;
+    private final List<Field<T>> routingFields;
+    private final String aggregateSection;
+    private final boolean aggregateRoot;
+
+    public static <T> Builder<T> builder(Class<T> rowType) {
+        return new Builder<>(rowType);
+    }
+
+    public TableMapper<T> compile() {
+        return new TableMapper<>(this);
+    }
+
+    /**
+     * Output field. Tracked fields are diffed on updates; untracked ones (the id) are only forwarded.
+     */
+    public record Field<T>(String name, Function<T, ?> accessor, boolean tracked) {
+    }
+
+    public static class Builder<T> {
+
+        private final Class<T> rowType;
+        private final List<Field<T>> fields = new ArrayList<>();
+        private final List<Field<T>> eventFields = new ArrayList<>();
+        private final List<Field<T>> routingFields = new ArrayList<>();
+        private String inputTable;
+        private String outputTable;
+        private QueueProperties queue;
+        private String routingKey;
+        private Function<T, Long> id;
+        private Function<T, Long> partitionKey;
+        private Class<? extends CustomerChangeEventDto> eventType;
+        private boolean eventFieldsFromBefore;
+        private String aggregateSection;
+        private boolean aggregateRoot;
+
+        private Builder(Class<T> rowType) {
+            this.rowType = rowType;
+        }
+
+        public Builder<T> inputTable(String inputTable) {
+            this.inputTable = inputTable;
+            return this;
+        }
+
+        public Builder<T> outputTable(String outputTable) {
+            this.outputTable = outputTable;
+            return this;
+        }
+
+        public Builder<T> queue(QueueProperties queue) {
+            this.queue = queue;
+            return this;
+        }
+
+        /**
+         * Routing key without the version suffix, e.g. {@code customer.{orgCode}}.
+         * Placeholders refer to output field names.
+         */
+        public Builder<T> routingKey(String routingKey) {
+            this.routingKey = routingKey;
+            return this;
+        }
+
+        public Builder<T> id(Function<T, Long> id) {
+            this.id = id;
+            fields.add(new Field<>("id", id, false));
+            return this;
+        }
+
+        /**
+         * Key that must stay in order, e.g. the owning customer id. Defaults to the row id.
+         */
+        public Builder<T> partitionKey(Function<T, Long> partitionKey) {
+            this.partitionKey = partitionKey;
+            return this;
+        }
+
+        public Builder<T> field(String name, Function<T, ?> accessor) {
+            fields.add(new Field<>(name, accessor, true));
+            return this;
+        }
+
+        /**
+         * Value only used in routing key placeholders, e.g. an org code looked up from the customer.
+         */
+        public Builder<T> routingField(String name, Function<T, ?> accessor) {
+            routingFields.add(new Field<>(name, accessor, false));
+            return this;
+        }
+
+        /**
+         * Outbound event class. Consumers see its name in the {@code __TypeId__} header, and its table
+         * specific properties must be declared with {@link #eventField}.
+         */
+        public Builder<T> event(Class<? extends CustomerChangeEventDto> eventType) {
+            this.eventType = eventType;
+            return this;
+        }
+
+        /**
+         * Table specific top level value of the outbound event, written after {@code changedFields}.
+         */
+        public Builder<T> eventField(String name, Function<T, ?> accessor) {
+            eventFields.add(new Field<>(name, accessor, false));
+            return this;
+        }
+
+        /**
+         * Reads the event fields of updates from the {@code before} row instead of {@code after}. Inserts
+         * still read {@code after} and deletes {@code before}.
+         */
+        public Builder<T> eventFieldsFromBefore() {
+            this.eventFieldsFromBefore = true;
+            return this;
+        }
+
+        /**
+         * Rows of this table are the customer aggregate itself, keyed by the row id.
+         */
+        public Builder<T> aggregateRoot(String section) {
+            this.aggregateSection = section;
+            this.aggregateRoot = true;
+            return this;
+        }
+
+        /**
+         * Rows of this table are listed in the {@code section} of the customer aggregate named by the
+         * partition key.
+         */
+        public Builder<T> aggregatePart(String section) {
+            this.aggregateSection = section;
+            this.aggregateRoot = false;
+            return this;
+        }
+
+        public TableMapping<T> build() {
+            return new TableMapping<>(
+                rowType,
+                Objects.requireNonNull(inputTable, "inputTable"),
+                Objects.requireNonNullElse(outputTable, inputTable),
+                Objects.requireNonNull(queue, "queue"),
+                Objects.requireNonNull(routingKey, "routingKey"),
+                Objects.requireNonNull(id, "id"),
+                Objects.requireNonNullElse(partitionKey, id),
+                List.copyOf(fields),
+                Objects.requireNonNull(eventType, "event"),
+                List.copyOf(eventFields),
+                eventFieldsFromBefore,
+                List.copyOf(routingFields),
+                aggregateSection,
+                aggregateRoot
+            );
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hot path meters, registered once per table and operation so recording is a map lookup on the table
+ * name plus counter/timer updates.
+ */
+@Component
+@RequiredArgsConstructor
+public class CdcMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TableMetrics> tables = new ConcurrentHashMap<>();
+
+    public TableMetrics table(String table) {
+        TableMetrics metrics = tables.get(table);
+        return metrics != null ? metrics : tables.computeIfAbsent(table, name -> new TableMetrics(meterRegistry, name));
+    }
+}
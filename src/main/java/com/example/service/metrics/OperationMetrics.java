@@ -0,0 +1,83 @@
+package com.example.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public final class OperationMetrics {
+
+    private final Counter received;
+    private final Counter unchanged;
+    private final Counter duplicate;
+    private final Counter published;
+    private final Timer map;
+    private final Timer publish;
+    private final Timer lag;
+
+    OperationMetrics(MeterRegistry registry, String table, String operation) {
+        this.received = Counter.builder("crm.cdc.events.received")
+            .tags("table", table, "op", operation)
+            .register(registry);
+        this.unchanged = Counter.builder("crm.cdc.events.suppressed")
+            .description("Events not forwarded")
+            .tags("table", table, "op", operation, "reason", "unchanged")
+            .register(registry);
+        this.duplicate = Counter.builder("crm.cdc.events.suppressed")
+            .description("Events not forwarded")
+            .tags("table", table, "op", operation, "reason", "duplicate")
+            .register(registry);
+        this.published = Counter.builder("crm.cdc.events.published")
+            .tags("table", table, "op", operation)
+            .register(registry);
+        this.map = Timer.builder("crm.cdc.map")
+            .tags("table", table, "op", operation)
+            .register(registry);
+        this.publish = Timer.builder("crm.cdc.publish")
+            .description("From hand-off to the publisher until the broker confirmed")
+            .tags("table", table, "op", operation)
+            .register(registry);
+        this.lag = Timer.builder("crm.cdc.lag")
+            .description("From the source commit (ts_ms) until the broker confirmed the publish")
+            .tags("table", table, "op", operation)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofMinutes(30))
+            .register(registry);
+    }
+
+    public void received() {
+        received.increment();
+    }
+
+    /**
+     * No tracked field changed.
+     */
+    public void unchanged() {
+        unchanged.increment();
+    }
+
+    /**
+     * Redelivery of an already forwarded event.
+     */
+    public void duplicate() {
+        duplicate.increment();
+    }
+
+    public void mapped(long startedNanos) {
+        map.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param sourceTimestamp Debezium {@code source.ts_ms}, may be {@code null}.
+     */
+    public void published(long startedNanos, Long sourceTimestamp) {
+        published.increment();
+        publish.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        if (sourceTimestamp != null) {
+            lag.record(Math.max(System.currentTimeMillis() - sourceTimestamp, 0), TimeUnit.MILLISECONDS);
+        }
+    }
+}
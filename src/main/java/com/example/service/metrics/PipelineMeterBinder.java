@@ -0,0 +1,72 @@
+package com.example.service.metrics;
+
+import com.example.service.KeyOrderedDispatcher;
+import com.example.service.Priority;
+import com.example.service.aggregate.CustomerAggregateStore;
+import com.example.service.aggregate.CustomerOrgIndex;
+import com.example.service.dedup.LsnDedupIndex;
+import com.example.service.outbox.OutboxJournal;
+import com.example.service.publish.ConfirmingPublisher;
+import com.example.service.transaction.ChangeSetAssembler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges of the pipeline's shared state, read at scrape time.
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineMeterBinder implements MeterBinder {
+
+    private final ConfirmingPublisher confirmingPublisher;
+    private final LsnDedupIndex lsnDedupIndex;
+    private final CustomerAggregateStore customerAggregateStore;
+    private final CustomerOrgIndex customerOrgIndex;
+    private final OutboxJournal outboxJournal;
+    private final ChangeSetAssembler changeSetAssembler;
+    private final KeyOrderedDispatcher keyOrderedDispatcher;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("crm.publisher.outstanding.confirms", confirmingPublisher, ConfirmingPublisher::outstandingConfirms)
+            .register(registry);
+        FunctionCounter.builder("crm.dedup.lookups", lsnDedupIndex, index -> index.stats().lookups())
+            .register(registry);
+        Gauge.builder("crm.dedup.memory", lsnDedupIndex, index -> index.stats().memoryBytes())
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("crm.aggregate.customers", customerAggregateStore, store -> store.stats().customers())
+            .register(registry);
+        Gauge.builder("crm.aggregate.memory", customerAggregateStore, store -> store.stats().recordBytes() + store.stats().indexBytes())
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("crm.routing.org.index.size", customerOrgIndex, CustomerOrgIndex::size)
+            .register(registry);
+        Gauge.builder("crm.outbox.backlog", outboxJournal, OutboxJournal::backlog)
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("crm.outbox.segments", outboxJournal, OutboxJournal::segmentCount)
+            .register(registry);
+        Gauge.builder("crm.transaction.open", changeSetAssembler, ChangeSetAssembler::openTransactions)
+            .register(registry);
+        Gauge.builder("crm.transaction.buffered", changeSetAssembler, ChangeSetAssembler::bufferedEvents)
+            .register(registry);
+        for (Priority priority : Priority.values()) {
+            Gauge.builder("crm.dispatch.pending", keyOrderedDispatcher, dispatcher -> dispatcher.pending(priority))
+                .tag("priority", priority.tag())
+                .register(registry);
+            Gauge.builder("crm.dispatch.lag", keyOrderedDispatcher, dispatcher -> dispatcher.lag(priority))
+                .description("Wait of the oldest queued work on the key-ordered lanes")
+                .tag("priority", priority.tag())
+                .baseUnit("milliseconds")
+                .register(registry);
+            FunctionCounter.builder("crm.dispatch.executed", keyOrderedDispatcher, dispatcher -> dispatcher.executed(priority))
+                .tag("priority", priority.tag())
+                .register(registry);
+        }
+    }
+}
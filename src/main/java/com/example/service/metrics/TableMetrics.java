@@ -0,0 +1,53 @@
+package com.example.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+public final class TableMetrics {
+
+    private static final String[] OPERATIONS = {"read", "create", "update", "delete", "other"};
+
+    private final Counter rejected;
+    private final Timer decode;
+    private final OperationMetrics[] operations = new OperationMetrics[OPERATIONS.length];
+
+    TableMetrics(MeterRegistry registry, String table) {
+        this.rejected = Counter.builder("crm.cdc.events.rejected")
+            .description("Invalid or undecodable Debezium events")
+            .tag("table", table)
+            .register(registry);
+        this.decode = Timer.builder("crm.cdc.decode")
+            .tag("table", table)
+            .register(registry);
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            operations[i] = new OperationMetrics(registry, table, OPERATIONS[i]);
+        }
+    }
+
+    public void decoded(long startedNanos) {
+        decode.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rejected() {
+        rejected.increment();
+    }
+
+    /**
+     * @param operation Debezium {@code op}.
+     */
+    public OperationMetrics operation(String operation) {
+        if (operation == null) {
+            return operations[4];
+        }
+        return switch (operation) {
+            case "r" -> operations[0];
+            case "c" -> operations[1];
+            case "u" -> operations[2];
+            case "d" -> operations[3];
+            default -> operations[4];
+        };
+    }
+}
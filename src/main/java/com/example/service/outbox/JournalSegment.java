@@ -0,0 +1,86 @@
+package com.example.service.outbox;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * One fixed-size journal file, mapped for its whole lifetime. Segment {@code n} holds the journal positions
+ * {@code [n * size, (n + 1) * size)}.
+ */
+final class JournalSegment {
+
+    private static final String SUFFIX = ".seg";
+
+    private final long number;
+    private final long start;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+
+    private JournalSegment(long number, int size, Path path, MappedByteBuffer buffer) {
+        this.number = number;
+        this.start = number * size;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    static JournalSegment open(Path directory, long number, int size) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", number, SUFFIX));
+        try (var channel = FileChannel.open(path, CREATE, READ, WRITE)) {
+            long existing = channel.size();
+            if (existing != 0 && existing != size) {
+                throw new IllegalStateException("Outbox segment " + path + " has " + existing + " bytes, expected " + size);
+            }
+            // The mapping stays valid after the channel is closed
+            return new JournalSegment(number, size, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * @return segment number of a journal file name, or {@code -1} for other files.
+     */
+    static long number(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    long number() {
+        return number;
+    }
+
+    long start() {
+        return start;
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void force(int offset, int length) {
+        buffer.force(offset, length);
+    }
+
+    /**
+     * The mapping itself is released when the buffer is collected.
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
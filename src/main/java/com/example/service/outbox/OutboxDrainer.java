@@ -0,0 +1,216 @@
+package com.example.service.outbox;
+
+import com.example.config.OutboxProperties;
+import com.example.service.publish.ConfirmingPublisher;
+import com.example.service.publish.OutboundMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes journaled records in journal order through {@link ConfirmingPublisher}, keeping up to
+ * {@code crm.outbox.maxInFlight} unconfirmed. Records are read {@code crm.outbox.batchSize} at a time and
+ * published back to back per publisher channel, in journal order within each channel. The checkpoint only
+ * moves past a record once it and every record before it are confirmed. A failed publish stops the drain:
+ * the drainer waits for the outstanding confirms, backs off and resumes from the last confirmed record, so
+ * the journal absorbs a broker outage instead of the input queues.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxDrainer {
+
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int BULK_CHANNEL = -1;
+
+    private final OutboxJournal outboxJournal;
+    private final ConfirmingPublisher confirmingPublisher;
+    private final OutboxProperties outboxProperties;
+
+    private final ArrayDeque<InFlight> inFlight = new ArrayDeque<>();
+    private Thread thread;
+    private volatile boolean running;
+    private long readPosition;
+    private long confirmedPosition;
+
+    @PostConstruct
+    public void start() {
+        if (!outboxJournal.isEnabled()) {
+            return;
+        }
+        readPosition = outboxJournal.checkpointPosition();
+        confirmedPosition = readPosition;
+        running = true;
+        thread = new Thread(this::drain, "crm-outbox-drainer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void drain() {
+        long checkpointNanos = TimeUnit.MILLISECONDS.toNanos(outboxProperties.getCheckpointInterval());
+        long nextCheckpoint = System.nanoTime() + checkpointNanos;
+        while (running) {
+            try {
+                if (awaitCapacity()) {
+                    List<OutboxRecord> batch = read();
+                    if (batch.isEmpty()) {
+                        outboxJournal.awaitAppend(readPosition, IDLE_WAIT_NANOS);
+                    } else {
+                        publish(batch);
+                    }
+                }
+                if (!advance()) {
+                    retry(null);
+                }
+            } catch (RuntimeException e) {
+                retry(e);
+            }
+            if (System.nanoTime() >= nextCheckpoint) {
+                outboxJournal.checkpoint(confirmedPosition);
+                nextCheckpoint = System.nanoTime() + checkpointNanos;
+            }
+        }
+        for (InFlight pending : inFlight) {
+            awaitQuietly(pending.published);
+        }
+        advance();
+        outboxJournal.checkpoint(confirmedPosition);
+    }
+
+    /**
+     * Waits while {@code crm.outbox.maxInFlight} publishes are unconfirmed.
+     *
+     * @return {@code false} when a publish failed.
+     */
+    private boolean awaitCapacity() {
+        while (inFlight.size() >= outboxProperties.getMaxInFlight()) {
+            awaitQuietly(inFlight.peekFirst().published);
+            if (!advance()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the next journaled records, at most {@code crm.outbox.batchSize} and what fits in flight.
+     */
+    private List<OutboxRecord> read() {
+        int limit = Math.min(outboxProperties.getBatchSize(), outboxProperties.getMaxInFlight() - inFlight.size());
+        var batch = new ArrayList<OutboxRecord>(limit);
+        while (batch.size() < limit) {
+            OutboxRecord record = outboxJournal.read(readPosition);
+            if (record == null) {
+                break;
+            }
+            batch.add(record);
+            readPosition = record.next();
+        }
+        return batch;
+    }
+
+    private void publish(List<OutboxRecord> batch) {
+        var destinations = new LinkedHashMap<Destination, List<Integer>>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxRecord record = batch.get(i);
+            int channel = record.bulk() ? BULK_CHANNEL : confirmingPublisher.channel(record.orderingKey());
+            destinations.computeIfAbsent(new Destination(record.exchange(), channel), key -> new ArrayList<>()).add(i);
+        }
+
+        var published = new ArrayList<CompletableFuture<Void>>(Collections.nCopies(batch.size(), null));
+        for (var destination : destinations.entrySet()) {
+            List<Integer> indexes = destination.getValue();
+            var messages = new ArrayList<OutboundMessage>(indexes.size());
+            for (int index : indexes) {
+                messages.add(new OutboundMessage(batch.get(index).routingKey(), batch.get(index).message()));
+            }
+            String exchange = destination.getKey().exchange();
+            OutboxRecord first = batch.get(indexes.get(0));
+            List<CompletableFuture<Void>> results = first.bulk()
+                ? confirmingPublisher.publishAllBulk(exchange, messages)
+                : confirmingPublisher.publishAll(exchange, messages, first.orderingKey());
+            for (int i = 0; i < indexes.size(); i++) {
+                published.set(indexes.get(i), results.get(i));
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            inFlight.addLast(new InFlight(batch.get(i).next(), published.get(i)));
+        }
+    }
+
+    /**
+     * Moves the confirmed position over the completed head of the in-flight records.
+     *
+     * @return {@code false} when a publish failed.
+     */
+    private boolean advance() {
+        while (!inFlight.isEmpty() && inFlight.peekFirst().published.isDone()) {
+            InFlight head = inFlight.peekFirst();
+            if (head.published.isCompletedExceptionally()) {
+                return false;
+            }
+            confirmedPosition = head.end;
+            inFlight.pollFirst();
+        }
+        return true;
+    }
+
+    /**
+     * Rewinds to the last confirmed record after a failure. Records after it that were confirmed anyway are
+     * published again.
+     */
+    private void retry(Throwable error) {
+        for (InFlight pending : inFlight) {
+            Throwable failure = awaitQuietly(pending.published);
+            if (error == null) {
+                error = failure;
+            }
+        }
+        inFlight.clear();
+        readPosition = confirmedPosition;
+        outboxJournal.checkpoint(confirmedPosition);
+        log.warn("Outbox publish failed, retrying from journal position {} in {} ms, {} bytes not drained",
+            confirmedPosition, outboxProperties.getRetryBackoff(), outboxJournal.backlog(), error);
+        try {
+            Thread.sleep(outboxProperties.getRetryBackoff());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * @return the publish failure, {@code null} when confirmed.
+     */
+    private static Throwable awaitQuietly(CompletableFuture<Void> published) {
+        return published.handle((result, error) -> error).join();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (thread != null) {
+            running = false;
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private record InFlight(long end, CompletableFuture<Void> published) {
+    }
+
+    /**
+     * Exchange and publisher channel of a record, {@link #BULK_CHANNEL} for the bulk lane.
+     */
+    private record Destination(String exchange, int channel) {
+    }
+}
@@ -0,0 +1,510 @@
+package com.example.service.outbox;
+
+import com.example.config.OutboxProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only journal of outbound publishes in memory-mapped {@link JournalSegment segment files}. An append
+ * completes once the record is in the mapped file, so the input can be acked without waiting for the broker;
+ * {@link OutboxDrainer} publishes the records in journal order and checkpoints what was confirmed.
+ * <p>
+ * A record is {@code [length:4][crc32c:4][payload]}. A length of {@code -1}, or fewer than 8 bytes left,
+ * ends a segment. On start the last segment is scanned up to the first torn or corrupt record and the
+ * drainer resumes from the checkpoint, so records after it are published again (at least once).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxJournal {
+
+    private static final int RECORD_HEADER = 2 * Integer.BYTES;
+    private static final int END_OF_SEGMENT = -1;
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final CompletableFuture<Void> JOURNALED = CompletableFuture.completedFuture(null);
+    private static final byte[] ZEROS = new byte[64 * 1024];
+
+    private final OutboxProperties outboxProperties;
+
+    private final ConcurrentSkipListMap<Long, JournalSegment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition segmentReleased = appendLock.newCondition();
+    private Path directory;
+    private int segmentSize;
+    private JournalSegment head;
+    private MappedByteBuffer checkpointBuffer;
+    private volatile long writePosition;
+    private volatile long checkpoint;
+    private volatile Thread waitingReader;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        segmentSize = outboxProperties.getSegmentSize();
+        directory = Files.createDirectories(Path.of(outboxProperties.getDirectory()));
+        try (var channel = FileChannel.open(directory.resolve(CHECKPOINT_FILE), CREATE, READ, WRITE)) {
+            checkpointBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        }
+        checkpoint = checkpointBuffer.getLong(0);
+        recover();
+        log.info("Outbox journal in {}: {} bytes to drain in {} segments", directory.toAbsolutePath(), backlog(), segments.size());
+    }
+
+    public boolean isEnabled() {
+        return outboxProperties.isEnabled();
+    }
+
+    private void recover() throws IOException {
+        long first = checkpoint / segmentSize;
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                long number = JournalSegment.number(file);
+                if (number >= first) {
+                    segments.put(number, JournalSegment.open(directory, number, segmentSize));
+                } else if (number >= 0) {
+                    Files.delete(file);
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            head = JournalSegment.open(directory, first, segmentSize);
+            segments.put(first, head);
+        }
+        // The checkpoint's own segment may be gone if it was deleted by hand
+        long oldest = segments.firstEntry().getValue().start();
+        if (checkpoint < oldest) {
+            checkpoint = oldest;
+            checkpointBuffer.putLong(0, oldest);
+        }
+        head = segments.lastEntry().getValue();
+        int end = scan(head.buffer(), (int) (Math.max(checkpoint, head.start()) - head.start()));
+        // Clear a torn tail, so no stale record can follow the ones appended from here
+        for (int offset = end; offset < segmentSize; offset += ZEROS.length) {
+            head.buffer().put(offset, ZEROS, 0, Math.min(ZEROS.length, segmentSize - offset));
+        }
+        head.force();
+        writePosition = head.start() + end;
+    }
+
+    /**
+     * @return offset after the last intact record from {@code offset} on.
+     */
+    private int scan(ByteBuffer buffer, int offset) {
+        var crc = new CRC32C();
+        while (offset + RECORD_HEADER <= segmentSize) {
+            int length = buffer.getInt(offset);
+            if (length == END_OF_SEGMENT) {
+                return segmentSize;
+            }
+            if (length <= 0 || length > segmentSize - offset - RECORD_HEADER) {
+                return offset;
+            }
+            crc.reset();
+            crc.update(buffer.slice(offset + RECORD_HEADER, length));
+            if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                return offset;
+            }
+            offset += RECORD_HEADER + length;
+        }
+        return segmentSize;
+    }
+
+    /**
+     * Journals a publish. {@code bulk} publishes go out on the publisher's bulk lane.
+     *
+     * @return completed once the record is journaled, failed when it can't be (journal full, I/O error).
+     */
+    public CompletableFuture<Void> append(String exchange, String routingKey, Message message, long orderingKey, boolean bulk) {
+        var record = new EncodedRecord(exchange, routingKey, message, orderingKey, bulk);
+        int size = RECORD_HEADER + record.size();
+        if (size > segmentSize - Integer.BYTES) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                "Outbound message of " + size + " bytes does not fit an outbox segment"));
+        }
+        try {
+            appendLock.lockInterruptibly();
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(outboxProperties.getAppendTimeout());
+                int offset = (int) (writePosition - head.start());
+                while (offset + size > segmentSize) {
+                    remaining = awaitFreeSegment(remaining);
+                    // Other appends may have rolled or filled the head while the lock was released
+                    offset = (int) (writePosition - head.start());
+                    if (offset + size > segmentSize) {
+                        offset = roll(offset);
+                    }
+                }
+                ByteBuffer buffer = head.buffer();
+                record.write(buffer, offset + RECORD_HEADER);
+                var crc = new CRC32C();
+                crc.update(buffer.slice(offset + RECORD_HEADER, record.size()));
+                buffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+                buffer.putInt(offset, record.size());
+                if (outboxProperties.isFsync()) {
+                    head.force(offset, size);
+                }
+                writePosition = head.start() + offset + size;
+            } finally {
+                appendLock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Thread reader = waitingReader;
+        if (reader != null) {
+            LockSupport.unpark(reader);
+        }
+        return JOURNALED;
+    }
+
+    /**
+     * Waits until fewer than {@code crm.outbox.maxSegments} segments are in use. Releases the append lock
+     * while waiting.
+     *
+     * @return nanos left to wait.
+     */
+    private long awaitFreeSegment(long remaining) throws InterruptedException {
+        while (segments.size() >= outboxProperties.getMaxSegments()) {
+            if (remaining <= 0) {
+                throw new IllegalStateException("Outbox journal full, " + backlog() + " bytes not drained");
+            }
+            remaining = segmentReleased.awaitNanos(remaining);
+        }
+        return remaining;
+    }
+
+    /**
+     * Ends the head segment at {@code offset} and starts the next. Runs under the append lock without
+     * releasing it, so no append can land after the end marker.
+     *
+     * @return offset to append at in the new head.
+     */
+    private int roll(int offset) throws IOException {
+        var next = JournalSegment.open(directory, head.number() + 1, segmentSize);
+        if (offset + Integer.BYTES <= segmentSize) {
+            head.buffer().putInt(offset, END_OF_SEGMENT);
+        }
+        segments.put(next.number(), next);
+        head = next;
+        writePosition = next.start();
+        return 0;
+    }
+
+    /**
+     * @return record at {@code position}, or {@code null} when nothing was appended there yet.
+     */
+    OutboxRecord read(long position) {
+        if (position >= writePosition) {
+            return null;
+        }
+        JournalSegment segment = segments.get(position / segmentSize);
+        ByteBuffer buffer = segment.buffer();
+        int offset = (int) (position - segment.start());
+        if (offset + RECORD_HEADER > segmentSize || buffer.getInt(offset) == END_OF_SEGMENT) {
+            return read(segment.start() + segmentSize);
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > segmentSize - offset - RECORD_HEADER) {
+            throw new IllegalStateException("Corrupt outbox record at position " + position + ", length " + length);
+        }
+        return EncodedRecord.read(buffer, offset + RECORD_HEADER, position + RECORD_HEADER + length);
+    }
+
+    /**
+     * Parks the calling reader until something is appended after {@code position}, at most {@code nanos}.
+     */
+    void awaitAppend(long position, long nanos) {
+        waitingReader = Thread.currentThread();
+        if (writePosition <= position) {
+            LockSupport.parkNanos(this, nanos);
+        }
+        waitingReader = null;
+    }
+
+    long checkpointPosition() {
+        return checkpoint;
+    }
+
+    /**
+     * Persists the drained position and releases the segments before it.
+     */
+    void checkpoint(long position) {
+        if (position <= checkpoint) {
+            return;
+        }
+        checkpoint = position;
+        checkpointBuffer.putLong(0, position);
+        checkpointBuffer.force();
+
+        List<JournalSegment> drained = new ArrayList<>();
+        for (JournalSegment segment : segments.values()) {
+            if (segment.number() >= position / segmentSize || segment == head) {
+                break;
+            }
+            drained.add(segment);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        for (JournalSegment segment : drained) {
+            segments.remove(segment.number());
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                log.warn("Could not delete drained outbox segment {}", segment.number(), e);
+            }
+        }
+        appendLock.lock();
+        try {
+            segmentReleased.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return journaled bytes not yet checkpointed as published.
+     */
+    public long backlog() {
+        return isEnabled() ? writePosition - checkpoint : 0;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (isEnabled()) {
+            appendLock.lock();
+            try {
+                head.force();
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Payload: ordering key, flags, exchange, routing key, content type and encoding, headers, body.
+     * Strings are length-prefixed UTF-8, a length of {@code -1} is {@code null}. A header is its name, a type
+     * tag and the value, so strings, booleans and numbers come back with their type; other values are kept
+     * as strings.
+     */
+    private static final class EncodedRecord {
+
+        private static final byte BULK = 1;
+        private static final byte STRING = 's';
+        private static final byte BOOLEAN = 'b';
+        private static final byte INTEGER = 'i';
+        private static final byte LONG = 'l';
+        private static final byte DOUBLE = 'd';
+
+        private final long orderingKey;
+        private final boolean bulk;
+        private final byte[] exchange;
+        private final byte[] routingKey;
+        private final byte[] contentType;
+        private final byte[] contentEncoding;
+        private final List<byte[]> headerNames = new ArrayList<>();
+        private final List<Object> headerValues = new ArrayList<>();
+        private final byte[] body;
+        private final int size;
+
+        private EncodedRecord(String exchange, String routingKey, Message message, long orderingKey, boolean bulk) {
+            MessageProperties properties = message.getMessageProperties();
+            this.orderingKey = orderingKey;
+            this.bulk = bulk;
+            this.exchange = utf8(exchange);
+            this.routingKey = utf8(routingKey);
+            this.contentType = utf8(properties.getContentType());
+            this.contentEncoding = utf8(properties.getContentEncoding());
+            int headerBytes = 0;
+            for (var header : properties.getHeaders().entrySet()) {
+                Object value = header.getValue();
+                if (value == null) {
+                    continue;
+                }
+                if (!(value instanceof Boolean || value instanceof Integer || value instanceof Long || value instanceof Double)) {
+                    value = utf8(value.toString());
+                }
+                byte[] name = utf8(header.getKey());
+                headerNames.add(name);
+                headerValues.add(value);
+                headerBytes += length(name) + 1 + valueLength(value);
+            }
+            this.body = message.getBody();
+
+            int strings = length(this.exchange) + length(this.routingKey) + length(contentType) + length(contentEncoding);
+            this.size = Long.BYTES + 1 + strings + Short.BYTES + headerBytes + Integer.BYTES + body.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void write(ByteBuffer buffer, int offset) {
+            buffer.putLong(offset, orderingKey);
+            offset += Long.BYTES;
+            buffer.put(offset++, bulk ? BULK : 0);
+            offset = putString(buffer, offset, exchange);
+            offset = putString(buffer, offset, routingKey);
+            offset = putString(buffer, offset, contentType);
+            offset = putString(buffer, offset, contentEncoding);
+            buffer.putShort(offset, (short) headerNames.size());
+            offset += Short.BYTES;
+            for (int i = 0; i < headerNames.size(); i++) {
+                offset = putString(buffer, offset, headerNames.get(i));
+                offset = putValue(buffer, offset, headerValues.get(i));
+            }
+            buffer.putInt(offset, body.length);
+            buffer.put(offset + Integer.BYTES, body);
+        }
+
+        static OutboxRecord read(ByteBuffer buffer, int offset, long next) {
+            var cursor = new int[] {offset};
+            long orderingKey = buffer.getLong(cursor[0]);
+            cursor[0] += Long.BYTES;
+            boolean bulk = buffer.get(cursor[0]++) == BULK;
+            String exchange = getString(buffer, cursor);
+            String routingKey = getString(buffer, cursor);
+            var properties = new MessageProperties();
+            properties.setContentType(getString(buffer, cursor));
+            properties.setContentEncoding(getString(buffer, cursor));
+            int headerCount = buffer.getShort(cursor[0]);
+            cursor[0] += Short.BYTES;
+            for (int i = 0; i < headerCount; i++) {
+                properties.setHeader(getString(buffer, cursor), getValue(buffer, cursor));
+            }
+            var body = new byte[buffer.getInt(cursor[0])];
+            buffer.get(cursor[0] + Integer.BYTES, body);
+            properties.setContentLength(body.length);
+            return new OutboxRecord(exchange, routingKey, new Message(body, properties), orderingKey, bulk, next);
+        }
+
+        private static byte[] utf8(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int length(byte[] string) {
+            return Short.BYTES + (string == null ? 0 : string.length);
+        }
+
+        private static int putString(ByteBuffer buffer, int offset, byte[] string) {
+            if (string == null) {
+                buffer.putShort(offset, (short) -1);
+                return offset + Short.BYTES;
+            }
+            buffer.putShort(offset, (short) string.length);
+            buffer.put(offset + Short.BYTES, string);
+            return offset + Short.BYTES + string.length;
+        }
+
+        private static int valueLength(Object value) {
+            if (value instanceof Boolean) {
+                return 1;
+            }
+            if (value instanceof Integer) {
+                return Integer.BYTES;
+            }
+            if (value instanceof Long || value instanceof Double) {
+                return Long.BYTES;
+            }
+            return length((byte[]) value);
+        }
+
+        private static int putValue(ByteBuffer buffer, int offset, Object value) {
+            if (value instanceof Boolean flag) {
+                buffer.put(offset, BOOLEAN);
+                buffer.put(offset + 1, (byte) (flag ? 1 : 0));
+                return offset + 2;
+            }
+            if (value instanceof Integer number) {
+                buffer.put(offset, INTEGER);
+                buffer.putInt(offset + 1, number);
+                return offset + 1 + Integer.BYTES;
+            }
+            if (value instanceof Long number) {
+                buffer.put(offset, LONG);
+                buffer.putLong(offset + 1, number);
+                return offset + 1 + Long.BYTES;
+            }
+            if (value instanceof Double number) {
+                buffer.put(offset, DOUBLE);
+                buffer.putDouble(offset + 1, number);
+                return offset + 1 + Double.BYTES;
+            }
+            buffer.put(offset, STRING);
+            return putString(buffer, offset + 1, (byte[]) value);
+        }
+
+        private static Object getValue(ByteBuffer buffer, int[] cursor) {
+            byte type = buffer.get(cursor[0]++);
+            Object value;
+            switch (type) {
+                case BOOLEAN -> {
+                    value = buffer.get(cursor[0]) == 1;
+                    cursor[0] += 1;
+                }
+                case INTEGER -> {
+                    value = buffer.getInt(cursor[0]);
+                    cursor[0] += Integer.BYTES;
+                }
+                case LONG -> {
+                    value = buffer.getLong(cursor[0]);
+                    cursor[0] += Long.BYTES;
+                }
+                case DOUBLE -> {
+                    value = buffer.getDouble(cursor[0]);
+                    cursor[0] += Double.BYTES;
+                }
+                default -> value = getString(buffer, cursor);
+            }
+            return value;
+        }
+
+        private static String getString(ByteBuffer buffer, int[] cursor) {
+            short length = buffer.getShort(cursor[0]);
+            cursor[0] += Short.BYTES;
+            if (length < 0) {
+                return null;
+            }
+            var bytes = new byte[length];
+            buffer.get(cursor[0], bytes);
+            cursor[0] += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.service.outbox;
+
+import org.springframework.amqp.core.Message;
+
+/**
+ * Journaled publish, as read back by the drainer.
+ *
+ * @param next journal position after this record.
+ */
+record OutboxRecord(String exchange, String routingKey, Message message, long orderingKey, boolean bulk, long next) {
+}
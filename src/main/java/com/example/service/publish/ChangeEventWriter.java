@@ -0,0 +1,122 @@
+package com.example.service.publish;
+
+import com.example.model.queue.ChangeSetDto;
+import com.example.service.mapping.RowChangeEvent;
+import com.example.service.transaction.ChangeSet;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static com.example.model.queue.CustomerChangeEventType.UPDATE;
+
+/**
+ * Serializes change events straight from their source rows into a per-thread buffer. The JSON output has
+ * the same body and properties as the JSON message converter produces for the event DTO, as long as both
+ * share one ObjectMapper (see RabbitMQConfig). CBOR is written from the same generator calls.
+ * <p>
+ * Change events also carry filter headers for headers exchange bindings: table, operation and, on updates,
+ * the changed fields as a bitmask and as one flag per field. Values are strings, so they match the same
+ * bindings whether published directly or from the outbox journal. A change set holds several events, so it
+ * carries one flag per table, per operation and per changed field of its events instead.
+ */
+public class ChangeEventWriter {
+
+    public static final String TABLE_HEADER = "crm-table";
+    public static final String OPERATION_HEADER = "crm-op";
+    /**
+     * Hex bitmask over the mapping's field order.
+     */
+    public static final String CHANGED_FIELDS_HEADER = "crm-changed";
+    /**
+     * Followed by the field name, set to {@code "true"} for every changed field.
+     */
+    public static final String CHANGED_FIELD_HEADER_PREFIX = "crm-changed-";
+    /**
+     * Followed by the table, set to {@code "true"} for every table in a change set.
+     */
+    public static final String TABLE_HEADER_PREFIX = "crm-table-";
+    /**
+     * Followed by the operation, set to {@code "true"} for every operation in a change set.
+     */
+    public static final String OPERATION_HEADER_PREFIX = "crm-op-";
+    private static final String FLAG = "true";
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final ThreadLocal<ByteArrayBuilder> buffers = ThreadLocal.withInitial(() -> new ByteArrayBuilder(1024));
+
+    public ChangeEventWriter(ObjectMapper jsonMapper, ObjectMapper cborMapper) {
+        this.jsonMapper = jsonMapper;
+        this.cborMapper = cborMapper;
+    }
+
+    public Message toMessage(RowChangeEvent<?> event, OutboundFormat format) {
+        OutboundBody body = format.isDelta() ? event::writeDelta : event;
+        Message message = toMessage(body, event.getEventType(), format);
+        setFilterHeaders(message.getMessageProperties(), event);
+        return message;
+    }
+
+    public Message toMessage(ChangeSet changeSet, OutboundFormat format) {
+        Message message = toMessage(changeSet.body(format.isDelta()), ChangeSetDto.class, format);
+        MessageProperties properties = message.getMessageProperties();
+        for (RowChangeEvent<?> event : changeSet.events()) {
+            properties.setHeader(TABLE_HEADER_PREFIX + event.getTable(), FLAG);
+            properties.setHeader(OPERATION_HEADER_PREFIX + event.getType().name(), FLAG);
+            if (event.getType() == UPDATE) {
+                setChangedFieldFlags(properties, event);
+            }
+        }
+        return message;
+    }
+
+    private static void setFilterHeaders(MessageProperties properties, RowChangeEvent<?> event) {
+        properties.setHeader(TABLE_HEADER, event.getTable());
+        properties.setHeader(OPERATION_HEADER, event.getType().name());
+        if (event.getType() != UPDATE) {
+            return;
+        }
+        properties.setHeader(CHANGED_FIELDS_HEADER, Long.toHexString(event.getChangedFields()));
+        setChangedFieldFlags(properties, event);
+    }
+
+    private static void setChangedFieldFlags(MessageProperties properties, RowChangeEvent<?> event) {
+        for (long remaining = event.getChangedFields(); remaining != 0; remaining &= remaining - 1) {
+            properties.setHeader(event.getMapper().changedFieldHeader(Long.numberOfTrailingZeros(remaining)), FLAG);
+        }
+    }
+
+    /**
+     * @param type class whose name consumers see in the {@code __TypeId__} header.
+     */
+    public Message toMessage(OutboundBody outbound, Class<?> type, OutboundFormat format) {
+        byte[] body = encode(outbound, format);
+        var properties = new MessageProperties();
+        properties.setContentType(format.getContentType());
+        if (MessageProperties.CONTENT_TYPE_JSON.equals(format.getContentType())) {
+            properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        }
+        properties.setContentLength(body.length);
+        properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, type.getName());
+        return new Message(body, properties);
+    }
+
+    public byte[] encode(OutboundBody outbound, OutboundFormat format) {
+        ByteArrayBuilder buffer = buffers.get();
+        buffer.reset();
+        ObjectMapper mapper = MessageProperties.CONTENT_TYPE_JSON.equals(format.getContentType()) ? jsonMapper : cborMapper;
+        try (JsonGenerator generator = mapper.createGenerator(buffer)) {
+            outbound.write(generator);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to write " + format + " body", e);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.service.publish;
+
+import com.example.config.PublisherProperties;
+import com.example.service.KeyOrderedDispatcher;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Connection;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes on a fixed set of dedicated confirm-mode channels ({@link PublisherLane}) over its own
+ * connection. Every publish returns a future completed by the broker confirm, so callers can ack their
+ * input without a synchronous round trip per message. Publishes with the same ordering key share a lane
+ * and therefore keep their order. Bulk (snapshot) traffic has its own lane so it never queues in front of
+ * live changes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConfirmingPublisher {
+
+    private final CachingConnectionFactory connectionFactory;
+    private final PublisherProperties publisherProperties;
+    private final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
+
+    private PublisherLane[] lanes;
+    private PublisherLane bulkLane;
+    private ScheduledExecutorService confirmTimeouts;
+    private volatile Connection connection;
+
+    @PostConstruct
+    public void init() {
+        lanes = new PublisherLane[publisherProperties.getLanes()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new PublisherLane(i, this::connection, publisherProperties.getMaxOutstandingConfirms());
+        }
+        bulkLane = new PublisherLane(lanes.length, this::connection, publisherProperties.getMaxOutstandingConfirms());
+        confirmTimeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crm-publisher-confirm-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(publisherProperties.getConfirmTimeout());
+        confirmTimeouts.scheduleWithFixedDelay(() -> {
+            for (PublisherLane lane : lanes) {
+                lane.expire(timeoutNanos);
+            }
+            bulkLane.expire(timeoutNanos);
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public CompletableFuture<Void> publish(String exchange, String routingKey, Message message, long orderingKey) {
+        return lane(orderingKey).publish(exchange, routingKey, toBasicProperties(message), message.getBody());
+    }
+
+    /**
+     * Publishes on the dedicated bulk lane.
+     */
+    public CompletableFuture<Void> publishBulk(String exchange, String routingKey, Message message) {
+        return bulkLane.publish(exchange, routingKey, toBasicProperties(message), message.getBody());
+    }
+
+    /**
+     * Publishes the messages back to back on one lane, keeping their relative order.
+     *
+     * @return one future per message, in input order.
+     */
+    public List<CompletableFuture<Void>> publishAll(String exchange, List<OutboundMessage> messages, long orderingKey) {
+        return publishAll(lane(orderingKey), exchange, messages);
+    }
+
+    /**
+     * Publishes the messages back to back on the bulk lane.
+     *
+     * @return one future per message, in input order.
+     */
+    public List<CompletableFuture<Void>> publishAllBulk(String exchange, List<OutboundMessage> messages) {
+        return publishAll(bulkLane, exchange, messages);
+    }
+
+    private List<CompletableFuture<Void>> publishAll(PublisherLane lane, String exchange, List<OutboundMessage> messages) {
+        int size = messages.size();
+        var routingKeys = new String[size];
+        var properties = new BasicProperties[size];
+        var bodies = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            OutboundMessage outbound = messages.get(i);
+            routingKeys[i] = outbound.routingKey();
+            properties[i] = toBasicProperties(outbound.message());
+            bodies[i] = outbound.message().getBody();
+        }
+        return Arrays.asList(lane.publishAll(exchange, routingKeys, properties, bodies));
+    }
+
+    /**
+     * Publishes not yet confirmed by the broker, across all lanes.
+     */
+    public int outstandingConfirms() {
+        int outstanding = 0;
+        for (PublisherLane lane : lanes) {
+            outstanding += lane.outstanding();
+        }
+        return outstanding;
+    }
+
+    /**
+     * @return channel the ordering key publishes on, equal for keys that keep their order with each other.
+     */
+    public int channel(long orderingKey) {
+        return KeyOrderedDispatcher.lane(orderingKey, lanes.length);
+    }
+
+    private PublisherLane lane(long orderingKey) {
+        return lanes[channel(orderingKey)];
+    }
+
+    private BasicProperties toBasicProperties(Message message) {
+        return messagePropertiesConverter.fromMessageProperties(message.getMessageProperties(), StandardCharsets.UTF_8.name());
+    }
+
+    private synchronized Connection connection() {
+        if (connection == null || !connection.isOpen()) {
+            try {
+                connection = connectionFactory.getRabbitConnectionFactory().newConnection("crm-publisher");
+            } catch (IOException | TimeoutException e) {
+                throw new AmqpConnectException(e);
+            }
+        }
+        return connection;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        confirmTimeouts.shutdownNow();
+        for (PublisherLane lane : lanes) {
+            lane.close();
+        }
+        bulkLane.close();
+        Connection current = connection;
+        if (current != null && current.isOpen()) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.debug("Failed to close publisher connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.service.publish;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Message body that writes itself, the generator decides the encoding.
+ */
+@FunctionalInterface
+public interface OutboundBody {
+
+    void write(JsonGenerator generator) throws IOException;
+}
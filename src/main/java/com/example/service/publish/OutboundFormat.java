@@ -0,0 +1,33 @@
+package com.example.service.publish;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * Wire format of an output stream. The version is the last routing key segment, so consumers pick a format
+ * by binding, e.g. {@code crm.update.customer.*.v2}. Delta streams carry only the changed and routing key
+ * fields of updates, see {@code TableMapper#write}.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum OutboundFormat {
+
+    JSON("v1", MessageProperties.CONTENT_TYPE_JSON, false),
+    /**
+     * Same document as v1, encoded as CBOR (RFC 8949).
+     */
+    CBOR("v2", "application/cbor", false),
+    /**
+     * v1 reduced to deltas.
+     */
+    JSON_DELTA("v3", MessageProperties.CONTENT_TYPE_JSON, true),
+    /**
+     * v2 reduced to deltas.
+     */
+    CBOR_DELTA("v4", "application/cbor", true);
+
+    private final String version;
+    private final String contentType;
+    private final boolean delta;
+}
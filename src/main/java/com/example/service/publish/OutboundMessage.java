@@ -0,0 +1,6 @@
+package com.example.service.publish;
+
+import org.springframework.amqp.core.Message;
+
+public record OutboundMessage(String routingKey, Message message) {
+}
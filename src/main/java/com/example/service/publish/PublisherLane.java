@@ -0,0 +1,197 @@
+package com.example.service.publish;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * One dedicated confirm-mode channel. Publishes are serialized on the channel, confirms arrive
+ * asynchronously and complete the future of every covered publish. The number of unconfirmed
+ * publishes is bounded by a semaphore window, which is the publisher's backpressure.
+ */
+@Slf4j
+class PublisherLane {
+
+    private final int index;
+    private final Supplier<Connection> connection;
+    private final Semaphore window;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile LaneChannel current;
+
+    PublisherLane(int index, Supplier<Connection> connection, int maxOutstandingConfirms) {
+        this.index = index;
+        this.connection = connection;
+        this.window = new Semaphore(maxOutstandingConfirms);
+    }
+
+    CompletableFuture<Void> publish(String exchange, String routingKey, BasicProperties properties, byte[] body) {
+        lock.lock();
+        try {
+            return publishLocked(exchange, routingKey, properties, body);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes all messages back to back on this lane's channel.
+     */
+    CompletableFuture<Void>[] publishAll(String exchange, String[] routingKeys, BasicProperties[] properties, byte[][] bodies) {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Void>[] futures = new CompletableFuture[bodies.length];
+        lock.lock();
+        try {
+            for (int i = 0; i < bodies.length; i++) {
+                futures[i] = publishLocked(exchange, routingKeys[i], properties[i], bodies[i]);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return futures;
+    }
+
+    private CompletableFuture<Void> publishLocked(String exchange, String routingKey, BasicProperties properties, byte[] body) {
+        var future = new CompletableFuture<Void>();
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        LaneChannel laneChannel = null;
+        long sequence = -1;
+        try {
+            laneChannel = openChannel();
+            sequence = laneChannel.channel.getNextPublishSeqNo();
+            laneChannel.pending.put(sequence, new PendingConfirm(future, System.nanoTime()));
+            laneChannel.channel.basicPublish(exchange, routingKey, false, properties, body);
+        } catch (IOException | RuntimeException e) {
+            if (laneChannel == null || laneChannel.pending.remove(sequence) != null) {
+                window.release();
+                future.completeExceptionally(e);
+            }
+        }
+        return future;
+    }
+
+    private LaneChannel openChannel() throws IOException {
+        LaneChannel laneChannel = current;
+        if (laneChannel != null && laneChannel.channel.isOpen()) {
+            return laneChannel;
+        }
+        Channel channel = connection.get().createChannel();
+        channel.confirmSelect();
+        laneChannel = new LaneChannel(channel);
+        channel.addConfirmListener(laneChannel);
+        LaneChannel opened = laneChannel;
+        channel.addShutdownListener(cause -> opened.failAll(new AmqpException("Publisher lane " + index + " channel closed", cause)));
+        current = laneChannel;
+        log.debug("Opened publisher lane {} channel {}", index, channel.getChannelNumber());
+        return laneChannel;
+    }
+
+    void expire(long timeoutNanos) {
+        LaneChannel laneChannel = current;
+        if (laneChannel != null) {
+            laneChannel.expire(System.nanoTime() - timeoutNanos);
+        }
+    }
+
+    int outstanding() {
+        LaneChannel laneChannel = current;
+        return laneChannel == null ? 0 : laneChannel.pending.size();
+    }
+
+    void close() {
+        LaneChannel laneChannel = current;
+        if (laneChannel != null && laneChannel.channel.isOpen()) {
+            try {
+                laneChannel.channel.close();
+            } catch (IOException | TimeoutException | AlreadyClosedException e) {
+                log.debug("Failed to close publisher lane {}", index, e);
+            }
+        }
+    }
+
+    private record PendingConfirm(CompletableFuture<Void> future, long publishedAt) {
+    }
+
+    /**
+     * Channel with its own confirm sequence space. A reopened channel starts a new one.
+     */
+    private final class LaneChannel implements ConfirmListener {
+
+        private final Channel channel;
+        private final ConcurrentNavigableMap<Long, PendingConfirm> pending = new ConcurrentSkipListMap<>();
+
+        private LaneChannel(Channel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void handleAck(long deliveryTag, boolean multiple) {
+            confirm(deliveryTag, multiple, null);
+        }
+
+        @Override
+        public void handleNack(long deliveryTag, boolean multiple) {
+            confirm(deliveryTag, multiple, new AmqpException("Publish nacked by broker on lane " + index));
+        }
+
+        private void confirm(long deliveryTag, boolean multiple, Exception error) {
+            if (!multiple) {
+                PendingConfirm confirm = pending.remove(deliveryTag);
+                if (confirm != null) {
+                    finish(confirm, error);
+                }
+                return;
+            }
+            Map.Entry<Long, PendingConfirm> entry;
+            while ((entry = pending.firstEntry()) != null && entry.getKey() <= deliveryTag) {
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    finish(entry.getValue(), error);
+                }
+            }
+        }
+
+        private void expire(long publishedBefore) {
+            for (var entry : pending.entrySet()) {
+                if (entry.getValue().publishedAt() - publishedBefore < 0 && pending.remove(entry.getKey(), entry.getValue())) {
+                    finish(entry.getValue(), new AmqpException("Publish confirm timed out on lane " + index));
+                }
+            }
+        }
+
+        private void failAll(Exception error) {
+            Map.Entry<Long, PendingConfirm> entry;
+            while ((entry = pending.pollFirstEntry()) != null) {
+                finish(entry.getValue(), error);
+            }
+        }
+
+        private void finish(PendingConfirm confirm, Exception error) {
+            window.release();
+            if (error == null) {
+                confirm.future().complete(null);
+            } else {
+                confirm.future().completeExceptionally(error);
+            }
+        }
+    }
+}
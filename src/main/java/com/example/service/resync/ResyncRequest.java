@@ -0,0 +1,13 @@
+package com.example.service.resync;
+
+import java.time.Instant;
+
+/**
+ * Rows of one table to publish again. Every filter is optional, {@code null} filters are not applied.
+ *
+ * @param customerIdFrom inclusive, the customer's id for customers and {@code customer_id} for child tables.
+ * @param customerIdTo   inclusive.
+ * @param modifiedSince  inclusive, compared with {@code modified_dtime}.
+ */
+public record ResyncRequest(String table, String orgCode, Long customerIdFrom, Long customerIdTo, Instant modifiedSince) {
+}
@@ -0,0 +1,407 @@
+package com.example.service.resync;
+
+import com.example.config.ResyncProperties;
+import com.example.service.CrmChangeEventSender;
+import com.example.service.OutboundEvent;
+import com.example.service.aggregate.CustomerOrgIndex;
+import com.example.service.mapping.TableMapper;
+import com.example.service.mapping.TableMapping;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes the current state of a table again, as insert events on the {@code init_registry} routing
+ * keys, so a downstream consumer can be rebuilt without a Debezium re-init. The filtered id span is split
+ * into ranges that are read in parallel, each with a server-side cursor on its own connection. A range
+ * publishes its rows in batches and reads on once a batch is confirmed, so nothing piles up in memory.
+ * Batches go out on the publisher's bulk channel, like snapshot rows, so live changes don't queue behind
+ * them. All resyncs share one rate limit ({@code crm.resync.maxRowsPerSecond}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ResyncService {
+
+    private static final String SCHEMA = "crm";
+    private static final int RETAINED_JOBS = 100;
+
+    private final List<TableMapping<?>> tableMappings;
+    private final ResyncProperties resyncProperties;
+    private final CrmChangeEventSender crmChangeEventSender;
+    private final CustomerOrgIndex customerOrgIndex;
+    private final ObjectProvider<DataSource> dataSource;
+
+    // Rows bind like Debezium rows: snake_case columns, see DebeziumEventDecoder
+    private final ObjectMapper rowMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, ResyncJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ResyncJob> eldest) {
+            return size() > RETAINED_JOBS && eldest.getValue().isFinished();
+        }
+    };
+    private final Map<String, TableMapper<?>> mappers = new HashMap<>();
+    private ExecutorService executor;
+    private long nextPermitNanos = System.nanoTime();
+
+    @PostConstruct
+    public void init() {
+        for (TableMapping<?> mapping : tableMappings) {
+            mappers.put(mapping.getInputTable(), mapping.compile());
+        }
+        var threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "crm-resync-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a resync in the background.
+     *
+     * @throws IllegalArgumentException when the table is not tracked.
+     * @throws IllegalStateException    when there is no datasource (relay profile).
+     */
+    public ResyncStatus start(ResyncRequest request) {
+        TableMapper<?> mapper = mappers.get(request.table());
+        if (mapper == null) {
+            throw new IllegalArgumentException("Unknown table " + request.table() + ", tracked are " + mappers.keySet());
+        }
+        DataSource source = dataSource.getIfAvailable();
+        if (source == null) {
+            throw new IllegalStateException("No datasource configured, resync needs the database");
+        }
+        var job = new ResyncJob(ids.incrementAndGet(), request);
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+        }
+        log.info("Resync {} of {} started: {}", job.id, request.table(), request);
+        CompletableFuture.runAsync(() -> run(job, mapper, source), executor)
+            .whenComplete((result, error) -> job.finish(error));
+        return job.status();
+    }
+
+    public List<ResyncStatus> jobs() {
+        synchronized (jobs) {
+            return jobs.values().stream().map(ResyncJob::status).toList();
+        }
+    }
+
+    /**
+     * @return the resync, {@code null} when unknown.
+     */
+    public ResyncStatus job(long id) {
+        synchronized (jobs) {
+            ResyncJob job = jobs.get(id);
+            return job == null ? null : job.status();
+        }
+    }
+
+    /**
+     * Stops a running resync after the batches in flight. Rows already published stay published.
+     *
+     * @return the resync, {@code null} when unknown.
+     */
+    public ResyncStatus cancel(long id) {
+        synchronized (jobs) {
+            ResyncJob job = jobs.get(id);
+            if (job == null) {
+                return null;
+            }
+            job.cancelled = true;
+            return job.status();
+        }
+    }
+
+    private <T> void run(ResyncJob job, TableMapper<T> mapper, DataSource source) {
+        var filter = new Filter(mapper, job.request);
+        long[] bounds = idBounds(source, mapper, filter);
+        if (bounds == null) {
+            return;
+        }
+        List<long[]> ranges = split(bounds[0], bounds[1], resyncProperties.getPartitions());
+        job.partitions = ranges.size();
+        var partitions = new CompletableFuture<?>[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            partitions[i] = CompletableFuture.runAsync(() -> readRange(job, mapper, source, filter, range), executor)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        // Stops the other ranges, the first error fails the job
+                        job.cancelled = true;
+                    }
+                });
+        }
+        CompletableFuture.allOf(partitions).join();
+    }
+
+    /**
+     * @return lowest and highest matching id, {@code null} when nothing matches.
+     */
+    private long[] idBounds(DataSource source, TableMapper<?> mapper, Filter filter) {
+        String sql = "SELECT min(id), max(id) FROM " + table(mapper) + " WHERE true" + filter.sql;
+        try (Connection connection = source.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            filter.bind(statement, 1);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                long min = rows.getLong(1);
+                return rows.wasNull() ? null : new long[] {min, rows.getLong(2)};
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Resync bounds of " + mapper.getInputTable(), sql, e);
+        }
+    }
+
+    /**
+     * Splits {@code [min, max]} into at most {@code partitions} consecutive inclusive ranges.
+     */
+    public static List<long[]> split(long min, long max, int partitions) {
+        if (min > max) {
+            return List.of();
+        }
+        // Unsigned, a span above Long.MAX_VALUE overflows; 0 stands for the full 2^64
+        long span = max - min + 1;
+        int count = span != 0 && Long.compareUnsigned(span, partitions) < 0 ? (int) span : Math.max(1, partitions);
+        long size = Long.divideUnsigned(span - 1, count) + 1;
+        var ranges = new ArrayList<long[]>(count);
+        long from = min;
+        while (true) {
+            if (Long.compareUnsigned(max - from, size - 1) <= 0) {
+                ranges.add(new long[] {from, max});
+                return ranges;
+            }
+            ranges.add(new long[] {from, from + size - 1});
+            from += size;
+        }
+    }
+
+    private <T> void readRange(ResyncJob job, TableMapper<T> mapper, DataSource source, Filter filter, long[] range) {
+        String sql = "SELECT * FROM " + table(mapper) + " WHERE id >= ? AND id <= ?" + filter.sql;
+        // Postgres only streams with a cursor inside a transaction
+        try (Connection connection = source.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setFetchSize(resyncProperties.getFetchSize());
+                statement.setLong(1, range[0]);
+                statement.setLong(2, range[1]);
+                filter.bind(statement, 3);
+                try (ResultSet rows = statement.executeQuery()) {
+                    String[] columns = columns(rows.getMetaData());
+                    var batch = new ArrayList<OutboundEvent>(resyncProperties.getBatchSize());
+                    while (!job.cancelled && rows.next()) {
+                        T row = readRow(rows, columns, mapper.getRowType());
+                        customerOrgIndex.accept(mapper, row);
+                        batch.add(new OutboundEvent(mapper.toCreateEvent(row), mapper.initRoutingKey(row), mapper.partitionKey(row)));
+                        if (batch.size() >= resyncProperties.getBatchSize()) {
+                            publish(job, batch);
+                        }
+                    }
+                    if (!job.cancelled && !batch.isEmpty()) {
+                        publish(job, batch);
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Resync of " + mapper.getInputTable(), sql, e);
+        }
+    }
+
+    /**
+     * Publishes the batch on the bulk channel and waits for its confirms.
+     */
+    private void publish(ResyncJob job, List<OutboundEvent> batch) {
+        throttle(batch.size());
+        List<CompletableFuture<Void>> published = crmChangeEventSender.sendAllBulk(batch);
+        CompletableFuture.allOf(published.toArray(CompletableFuture[]::new)).join();
+        job.rows.add(batch.size());
+        batch.clear();
+    }
+
+    private <T> T readRow(ResultSet rows, String[] columns, Class<T> rowType) throws SQLException {
+        var values = new HashMap<String, Object>(columns.length * 2);
+        for (int i = 0; i < columns.length; i++) {
+            values.put(columns[i], jdbcValue(rows.getObject(i + 1)));
+        }
+        return rowMapper.convertValue(values, rowType);
+    }
+
+    private static Object jdbcValue(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        return value;
+    }
+
+    private static String[] columns(ResultSetMetaData metaData) throws SQLException {
+        var columns = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = metaData.getColumnLabel(i + 1);
+        }
+        return columns;
+    }
+
+    private static String table(TableMapper<?> mapper) {
+        return SCHEMA + '.' + mapper.getInputTable();
+    }
+
+    private synchronized void throttle(int rows) {
+        int maxRowsPerSecond = resyncProperties.getMaxRowsPerSecond();
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        nextPermitNanos = Math.max(nextPermitNanos, now) + TimeUnit.SECONDS.toNanos(rows) / maxRowsPerSecond;
+        long wait = nextPermitNanos - now - TimeUnit.SECONDS.toNanos(1);
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Conditions of a request, appended to a {@code WHERE} clause. The customer of a child table row is its
+     * {@code customer_id}, the aggregate root (customer) is its own customer.
+     */
+    static final class Filter {
+
+        private final StringBuilder sql = new StringBuilder();
+        private final List<Object> parameters = new ArrayList<>();
+
+        Filter(TableMapper<?> mapper, ResyncRequest request) {
+            String customerColumn = mapper.isAggregateRoot() ? "id" : "customer_id";
+            if (request.orgCode() != null) {
+                if (mapper.isAggregateRoot()) {
+                    sql.append(" AND source_org_code = ?");
+                } else {
+                    sql.append(" AND customer_id IN (SELECT id FROM " + SCHEMA + ".customer WHERE source_org_code = ?)");
+                }
+                parameters.add(request.orgCode());
+            }
+            if (request.customerIdFrom() != null) {
+                sql.append(" AND ").append(customerColumn).append(" >= ?");
+                parameters.add(request.customerIdFrom());
+            }
+            if (request.customerIdTo() != null) {
+                sql.append(" AND ").append(customerColumn).append(" <= ?");
+                parameters.add(request.customerIdTo());
+            }
+            if (request.modifiedSince() != null) {
+                sql.append(" AND modified_dtime >= ?");
+                parameters.add(Timestamp.from(request.modifiedSince()));
+            }
+        }
+
+        String sql() {
+            return sql.toString();
+        }
+
+        void bind(PreparedStatement statement, int first) throws SQLException {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(first + i, parameters.get(i));
+            }
+        }
+    }
+
+    private static final class ResyncJob {
+
+        private final long id;
+        private final ResyncRequest request;
+        private final Instant started = Instant.now();
+        private final LongAdder rows = new LongAdder();
+        private volatile int partitions;
+        private volatile boolean cancelled;
+        private volatile Instant finished;
+        private volatile String error;
+
+        private ResyncJob(long id, ResyncRequest request) {
+            this.id = id;
+            this.request = request;
+        }
+
+        private void finish(Throwable failure) {
+            if (failure != null) {
+                Throwable cause = failure;
+                while (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                error = cause.getMessage();
+                log.warn("Resync {} of {} failed after {} rows", id, request.table(), rows.sum(), cause);
+            } else {
+                log.info("Resync {} of {} {} after {} rows", id, request.table(), cancelled ? "cancelled" : "done", rows.sum());
+            }
+            finished = Instant.now();
+        }
+
+        private boolean isFinished() {
+            return finished != null;
+        }
+
+        private ResyncStatus status() {
+            String state;
+            if (finished == null) {
+                state = "RUNNING";
+            } else if (error != null) {
+                state = "FAILED";
+            } else {
+                state = cancelled ? "CANCELLED" : "DONE";
+            }
+            return new ResyncStatus(id, request, state, partitions, rows.sum(), started, finished, error);
+        }
+    }
+
+    /**
+     * @param rows published and confirmed so far.
+     */
+    public record ResyncStatus(long id, ResyncRequest request, String state, int partitions, long rows,
+                               Instant started, Instant finished, String error) {
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.service.scaling;
+
+import com.example.config.QueueChangeProperties.ConsumerProperties;
+import com.example.config.ScalingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scales the adaptive change queues between their configured bounds. Every {@code crm.scaling.interval} it
+ * reads each queue's ready messages and the average time deliveries took until their outputs were
+ * confirmed, then:
+ * <ul>
+ *     <li>behind ({@code scaleUpBacklog}) and latency within {@code maxLatency}: doubles the delivery window,
+ *     then adds a consumer once the window is at its maximum;</li>
+ *     <li>behind but latency over {@code maxLatency}: holds, the broker is the bottleneck;</li>
+ *     <li>idle ({@code scaleDownBacklog}) and less than half the window used: removes a consumer, then
+ *     halves the window;</li>
+ *     <li>otherwise holds.</li>
+ * </ul>
+ * Each decision is counted in {@code crm.consumer.scaling.decisions} by action and reason.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConsumerScalingController {
+
+    private final ScalingProperties scalingProperties;
+    private final RabbitListenerEndpointRegistry listenerEndpointRegistry;
+    private final AmqpAdmin amqpAdmin;
+    private final MeterRegistry meterRegistry;
+
+    private final List<ScaledQueue> queues = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Registers a change queue's listener for scaling.
+     *
+     * @return window the listener must acquire per delivery, {@code null} when the queue is not adaptive.
+     */
+    public synchronized DeliveryWindow register(String containerId, String queueName, ConsumerProperties consumer) {
+        if (!consumer.isAdaptive()) {
+            return null;
+        }
+        int initial = Math.max(consumer.getMinPrefetch(), Math.min(consumer.getPrefetch(), consumer.getMaxPrefetch()));
+        var queue = new ScaledQueue(containerId, queueName, consumer, new DeliveryWindow(initial));
+        queue.bindTo(meterRegistry);
+        queues.add(queue);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "crm-consumer-scaling");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::adjustAll, scalingProperties.getInterval(),
+                scalingProperties.getInterval(), TimeUnit.MILLISECONDS);
+        }
+        return queue.window;
+    }
+
+    private void adjustAll() {
+        for (ScaledQueue queue : queues) {
+            try {
+                adjust(queue);
+            } catch (RuntimeException e) {
+                log.warn("Could not scale consumers of {}", queue.queueName, e);
+            }
+        }
+    }
+
+    private void adjust(ScaledQueue queue) {
+        MessageListenerContainer listener = listenerEndpointRegistry.getListenerContainer(queue.containerId);
+        if (!(listener instanceof SimpleMessageListenerContainer container) || !container.isRunning()) {
+            return;
+        }
+        QueueInformation info = amqpAdmin.getQueueInfo(queue.queueName);
+        if (info == null) {
+            return;
+        }
+        queue.backlog = info.getMessageCount();
+        queue.latencyMillis = queue.window.drainLatencyMillis();
+        int peak = queue.window.drainPeak();
+        ConsumerProperties bounds = queue.consumer;
+        int window = queue.window.limit();
+
+        if (queue.backlog >= scalingProperties.getScaleUpBacklog()) {
+            if (queue.latencyMillis > scalingProperties.getMaxLatency()) {
+                queue.decision("hold", "publish_latency");
+            } else if (window < bounds.getMaxPrefetch()) {
+                resize(queue, Math.min(window * 2, bounds.getMaxPrefetch()), "up", "backlog");
+            } else if (queue.consumers < bounds.getMaxConsumers()) {
+                scale(queue, container, queue.consumers + 1, "up", "backlog");
+            } else {
+                queue.decision("hold", "at_max");
+            }
+        } else if (queue.backlog <= scalingProperties.getScaleDownBacklog() && peak < window / 2) {
+            if (queue.consumers > bounds.getConsumers()) {
+                scale(queue, container, queue.consumers - 1, "down", "idle");
+            } else if (window > bounds.getMinPrefetch()) {
+                resize(queue, Math.max(window / 2, bounds.getMinPrefetch()), "down", "idle");
+            } else {
+                queue.decision("hold", "at_min");
+            }
+        } else {
+            queue.decision("hold", "steady");
+        }
+    }
+
+    private void resize(ScaledQueue queue, int window, String action, String reason) {
+        log.info("Delivery window of {} {} to {} ({}: backlog {}, latency {} ms)",
+            queue.queueName, action, window, reason, queue.backlog, Math.round(queue.latencyMillis));
+        queue.window.limit(window);
+        queue.decision(action, reason);
+    }
+
+    private void scale(ScaledQueue queue, SimpleMessageListenerContainer container, int consumers, String action, String reason) {
+        log.info("Consumers of {} {} to {} ({}: backlog {}, latency {} ms)",
+            queue.queueName, action, consumers, reason, queue.backlog, Math.round(queue.latencyMillis));
+        container.setConcurrentConsumers(consumers);
+        queue.consumers = consumers;
+        queue.decision(action, reason);
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static final class ScaledQueue {
+
+        private final String containerId;
+        private final String queueName;
+        private final ConsumerProperties consumer;
+        private final DeliveryWindow window;
+        private MeterRegistry registry;
+        private volatile int consumers;
+        private volatile long backlog;
+        private volatile double latencyMillis;
+
+        private ScaledQueue(String containerId, String queueName, ConsumerProperties consumer, DeliveryWindow window) {
+            this.containerId = containerId;
+            this.queueName = queueName;
+            this.consumer = consumer;
+            this.window = window;
+            this.consumers = consumer.getConsumers();
+        }
+
+        private void bindTo(MeterRegistry registry) {
+            this.registry = registry;
+            Gauge.builder("crm.consumer.window", window, DeliveryWindow::limit)
+                .description("Deliveries allowed in flight")
+                .tag("queue", queueName)
+                .register(registry);
+            Gauge.builder("crm.consumer.inflight", window, DeliveryWindow::inFlight)
+                .tag("queue", queueName)
+                .register(registry);
+            Gauge.builder("crm.consumer.consumers", this, queue -> queue.consumers)
+                .tag("queue", queueName)
+                .register(registry);
+            Gauge.builder("crm.consumer.backlog", this, queue -> queue.backlog)
+                .description("Ready messages at the last decision")
+                .tag("queue", queueName)
+                .register(registry);
+            Gauge.builder("crm.consumer.latency", this, queue -> queue.latencyMillis)
+                .description("Average hand-off to confirm time at the last decision")
+                .tag("queue", queueName)
+                .baseUnit("milliseconds")
+                .register(registry);
+        }
+
+        private void decision(String action, String reason) {
+            Counter.builder("crm.consumer.scaling.decisions")
+                .tags("queue", queueName, "action", action, "reason", reason)
+                .register(registry)
+                .increment();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.service.scaling;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adjustable limit of deliveries of one queue that are handed off but not finished (outputs confirmed or
+ * journaled). The listener thread waits in {@link #acquire()} while the window is full, so it acts as a
+ * prefetch that can change at runtime; RabbitMQ only applies {@code basic.qos} to new consumers.
+ */
+public final class DeliveryWindow {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final LongAdder completions = new LongAdder();
+    private final LongAdder completionNanos = new LongAdder();
+    private volatile int limit;
+    private volatile int inFlight;
+    private int peak;
+
+    DeliveryWindow(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Waits for a free slot. Interrupts end the wait, the delivery is then processed over the limit.
+     *
+     * @return start time to pass to {@link #release(long)}.
+     */
+    public long acquire() {
+        return acquire(1);
+    }
+
+    /**
+     * Waits for slots for a consumer batch, released one by one. A batch larger than the window gets it
+     * to itself.
+     *
+     * @return start time to pass to {@link #release(long)} per delivery.
+     */
+    public long acquire(int deliveries) {
+        lock.lock();
+        try {
+            while (inFlight > 0 && inFlight + deliveries > limit) {
+                released.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight += deliveries;
+            peak = Math.max(peak, inFlight);
+            lock.unlock();
+        }
+        return System.nanoTime();
+    }
+
+    public void release(long startedNanos) {
+        completions.increment();
+        completionNanos.add(System.nanoTime() - startedNanos);
+        lock.lock();
+        try {
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    void limit(int limit) {
+        lock.lock();
+        try {
+            this.limit = limit;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return most deliveries in flight at once since the previous call.
+     */
+    int drainPeak() {
+        lock.lock();
+        try {
+            int result = peak;
+            peak = inFlight;
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return average milliseconds from acquire to release since the previous call, 0 without completions.
+     */
+    double drainLatencyMillis() {
+        long count = completions.sumThenReset();
+        long nanos = completionNanos.sumThenReset();
+        return count == 0 ? 0 : nanos / 1e6 / count;
+    }
+}
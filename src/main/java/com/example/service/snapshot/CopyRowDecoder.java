@@ -0,0 +1,176 @@
+package com.example.service.snapshot;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.HashMap;
+
+/**
+ * Decodes one row of a {@code COPY ... TO STDOUT} text stream (tab separated, {@code \N} for null,
+ * backslash escapes) into a row DTO. Values are converted by column type and bound like Debezium rows.
+ * Timestamps are read as UTC, the copying transaction sets its {@code TimeZone} to UTC.
+ */
+final class CopyRowDecoder<T> {
+
+    // Rows bind like Debezium rows: snake_case columns, see DebeziumEventDecoder
+    private static final ObjectMapper ROW_MAPPER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+    private static final DateTimeFormatter TIMESTAMP = new DateTimeFormatterBuilder()
+        .append(DateTimeFormatter.ISO_LOCAL_DATE)
+        .appendLiteral(' ')
+        .append(DateTimeFormatter.ISO_LOCAL_TIME)
+        .optionalStart()
+        .appendOffset("+HH:mm", "+00")
+        .optionalEnd()
+        .toFormatter();
+
+    private final Class<T> rowType;
+    private final String[] columns;
+    private final ColumnType[] types;
+
+    /**
+     * @param typeNames Postgres type names of the columns, e.g. {@code int8} or {@code timestamptz}.
+     */
+    CopyRowDecoder(Class<T> rowType, String[] columns, String[] typeNames) {
+        this.rowType = rowType;
+        this.columns = columns;
+        this.types = new ColumnType[typeNames.length];
+        for (int i = 0; i < typeNames.length; i++) {
+            types[i] = ColumnType.of(typeNames[i]);
+        }
+    }
+
+    /**
+     * @param row one row as sent by the server, with or without the trailing newline.
+     */
+    T decode(byte[] row) {
+        var values = new HashMap<String, Object>(columns.length * 2);
+        int end = row.length > 0 && row[row.length - 1] == '\n' ? row.length - 1 : row.length;
+        int column = 0;
+        int start = 0;
+        // A tab inside a value is escaped, so every raw tab separates two columns
+        for (int i = 0; i <= end; i++) {
+            if (i == end || row[i] == '\t') {
+                if (column < columns.length) {
+                    String text = text(row, start, i);
+                    values.put(columns[column], text == null ? null : types[column].convert(text));
+                }
+                column++;
+                start = i + 1;
+            }
+        }
+        if (column != columns.length) {
+            throw new IllegalArgumentException("COPY row has " + column + " columns, expected " + columns.length);
+        }
+        return ROW_MAPPER.convertValue(values, rowType);
+    }
+
+    /**
+     * @return the unescaped value, {@code null} for {@code \N}.
+     */
+    private static String text(byte[] row, int start, int end) {
+        int backslash = -1;
+        for (int i = start; i < end; i++) {
+            if (row[i] == '\\') {
+                backslash = i;
+                break;
+            }
+        }
+        if (backslash < 0) {
+            return new String(row, start, end - start, StandardCharsets.UTF_8);
+        }
+        if (end - start == 2 && row[start + 1] == 'N') {
+            return null;
+        }
+        var out = new byte[end - start];
+        int length = backslash - start;
+        System.arraycopy(row, start, out, 0, length);
+        for (int i = backslash; i < end; i++) {
+            byte b = row[i];
+            if (b != '\\' || i + 1 == end) {
+                out[length++] = b;
+                continue;
+            }
+            byte escaped = row[++i];
+            switch (escaped) {
+                case 'b' -> out[length++] = '\b';
+                case 'f' -> out[length++] = '\f';
+                case 'n' -> out[length++] = '\n';
+                case 'r' -> out[length++] = '\r';
+                case 't' -> out[length++] = '\t';
+                case 'v' -> out[length++] = 0x0B;
+                case 'x' -> {
+                    int value = 0;
+                    int digits = 0;
+                    while (digits < 2 && i + 1 < end && Character.digit(row[i + 1], 16) >= 0) {
+                        value = value * 16 + Character.digit(row[++i], 16);
+                        digits++;
+                    }
+                    out[length++] = digits == 0 ? (byte) 'x' : (byte) value;
+                }
+                case '0', '1', '2', '3', '4', '5', '6', '7' -> {
+                    int value = escaped - '0';
+                    int digits = 1;
+                    while (digits < 3 && i + 1 < end && row[i + 1] >= '0' && row[i + 1] <= '7') {
+                        value = value * 8 + row[++i] - '0';
+                        digits++;
+                    }
+                    out[length++] = (byte) value;
+                }
+                default -> out[length++] = escaped;
+            }
+        }
+        return new String(out, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static Instant timestamp(String text) {
+        TemporalAccessor parsed = TIMESTAMP.parse(text);
+        ZoneOffset offset = parsed.isSupported(ChronoField.OFFSET_SECONDS) ? ZoneOffset.from(parsed) : ZoneOffset.UTC;
+        return LocalDateTime.from(parsed).toInstant(offset);
+    }
+
+    private enum ColumnType {
+        TEXT,
+        BOOLEAN,
+        INTEGER,
+        DECIMAL,
+        DATE,
+        TIMESTAMP;
+
+        static ColumnType of(String typeName) {
+            return switch (typeName) {
+                case "bool" -> BOOLEAN;
+                case "int2", "int4", "int8", "smallserial", "serial", "bigserial" -> INTEGER;
+                case "numeric", "float4", "float8" -> DECIMAL;
+                case "date" -> DATE;
+                case "timestamp", "timestamptz" -> TIMESTAMP;
+                default -> TEXT;
+            };
+        }
+
+        Object convert(String text) {
+            return switch (this) {
+                case TEXT -> text;
+                case BOOLEAN -> "t".equals(text);
+                case INTEGER -> Long.valueOf(text);
+                case DECIMAL -> new BigDecimal(text);
+                case DATE -> LocalDate.parse(text);
+                case TIMESTAMP -> timestamp(text);
+            };
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.service.snapshot;
+
+import com.example.config.ExportProperties;
+import com.example.config.SnapshotProperties;
+import com.example.service.mapping.TableMapper;
+import com.example.service.mapping.TableMapping;
+import com.example.service.resync.ResyncService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.copy.CopyOut;
+import org.postgresql.replication.ReplicationSlotInfo;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Initial snapshot of the tracked tables, exported by the service itself instead of the {@code debezium_init}
+ * server. It creates the replication slot of live CDC with an exported snapshot. The slot's consistent point
+ * is the LSN watermark: the snapshot holds every transaction committed before it, and the slot streams every
+ * transaction committed after it. Live Debezium started on that slot continues without gaps or duplicates.
+ * <p>
+ * Every table is split into id ranges. {@code crm.export.partitions} connections import the snapshot and
+ * {@code COPY} the ranges to the service in text format. Rows are decoded one at a time and published through
+ * the snapshot pipeline ({@link SnapshotHandler#handleRows}) as {@code init_batch} messages. A connection keeps
+ * one batch in flight, so memory does not grow with the table. A failed or cancelled export drops the slot
+ * again, since live CDC must not start from an incomplete snapshot.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotExporter {
+
+    private static final String SCHEMA = "crm";
+    private static final CompletableFuture<Void> NOTHING_TO_SEND = CompletableFuture.completedFuture(null);
+
+    private final List<TableMapping<?>> tableMappings;
+    private final ExportProperties exportProperties;
+    private final SnapshotProperties snapshotProperties;
+    private final SnapshotHandler snapshotHandler;
+    private final ObjectProvider<DataSource> dataSource;
+    private final ObjectProvider<DataSourceProperties> dataSourceProperties;
+
+    private final List<TableMapper<?>> mappers = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private ExecutorService executor;
+    private volatile Export current;
+
+    @PostConstruct
+    public void init() {
+        for (TableMapping<?> mapping : tableMappings) {
+            mappers.add(mapping.compile());
+        }
+        var threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "crm-export-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return whether a datasource is configured, there is none in the relay profile.
+     */
+    public boolean isAvailable() {
+        return dataSource.getIfAvailable() != null && dataSourceProperties.getIfAvailable() != null;
+    }
+
+    /**
+     * Starts an export in the background.
+     *
+     * @throws IllegalStateException when an export is running already.
+     */
+    public synchronized ExportStatus start() {
+        if (current != null && !current.isFinished()) {
+            throw new IllegalStateException("Export " + current.id + " is running");
+        }
+        DataSource source = dataSource.getObject();
+        DataSourceProperties properties = dataSourceProperties.getObject();
+        var export = new Export(ids.incrementAndGet(), exportProperties.getSlotName());
+        current = export;
+        log.info("Snapshot export {} started, slot {}", export.id, export.slotName);
+        CompletableFuture.runAsync(() -> run(export, source, properties), executor)
+            .whenComplete((result, error) -> {
+                if ((error != null || export.cancelled) && export.watermark != null) {
+                    dropSlot(source, export.slotName);
+                }
+                export.finish(error);
+            });
+        return export.status();
+    }
+
+    /**
+     * @return the running or last export, {@code null} when there was none.
+     */
+    public ExportStatus status() {
+        Export export = current;
+        return export == null ? null : export.status();
+    }
+
+    /**
+     * Stops the running export after the batches in flight and drops its slot.
+     *
+     * @return the export, {@code null} when there was none.
+     */
+    public ExportStatus cancel() {
+        Export export = current;
+        if (export == null) {
+            return null;
+        }
+        export.cancelled = true;
+        return export.status();
+    }
+
+    private void run(Export export, DataSource source, DataSourceProperties properties) {
+        var workers = new ArrayList<Connection>();
+        try {
+            createPublication(source);
+            try (Connection replication = replicationConnection(properties)) {
+                ReplicationSlotInfo slot = replication.unwrap(PGConnection.class).getReplicationAPI()
+                    .createReplicationSlot()
+                    .logical()
+                    .withSlotName(export.slotName)
+                    .withOutputPlugin(exportProperties.getOutputPlugin())
+                    .make();
+                export.watermark = slot.getConsistentPoint().asString();
+                log.info("Snapshot export {}: slot {} created at LSN {}", export.id, export.slotName, export.watermark);
+                // The snapshot stays exported until the replication connection runs its next command or closes
+                for (int i = 0; i < exportProperties.getPartitions(); i++) {
+                    workers.add(importSnapshot(source, slot.getSnapshotName()));
+                }
+            }
+            Queue<Range> ranges = new ConcurrentLinkedQueue<>(ranges(workers.get(0)));
+            var copies = new CompletableFuture<?>[workers.size()];
+            for (int i = 0; i < workers.size(); i++) {
+                Connection worker = workers.get(i);
+                copies[i] = CompletableFuture.runAsync(() -> copyRanges(export, worker, ranges), executor)
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            // Stops the other connections, the first error fails the export
+                            export.cancelled = true;
+                        }
+                    });
+            }
+            CompletableFuture.allOf(copies).join();
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Snapshot export", null, e);
+        } finally {
+            for (Connection worker : workers) {
+                close(worker);
+            }
+        }
+    }
+
+    /**
+     * pgoutput only decodes tables of a publication that existed when the change was written, so it has to
+     * exist before the slot. Debezium uses an existing publication as it is.
+     */
+    private void createPublication(DataSource source) throws SQLException {
+        String name = exportProperties.getPublicationName();
+        try (Connection connection = source.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM pg_publication WHERE pubname = ?")) {
+            statement.setString(1, name);
+            try (ResultSet rows = statement.executeQuery()) {
+                if (rows.next()) {
+                    return;
+                }
+            }
+            String tables = mappers.stream().map(SnapshotExporter::table).collect(Collectors.joining(", "));
+            try (Statement create = connection.createStatement()) {
+                create.execute("CREATE PUBLICATION " + quote(name) + " FOR TABLE " + tables);
+            }
+            log.info("Created publication {} for {}", name, tables);
+        }
+    }
+
+    private static Connection replicationConnection(DataSourceProperties properties) throws SQLException {
+        var info = new Properties();
+        PGProperty.USER.set(info, properties.determineUsername());
+        PGProperty.PASSWORD.set(info, properties.determinePassword());
+        PGProperty.REPLICATION.set(info, "database");
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(info, "10");
+        PGProperty.PREFER_QUERY_MODE.set(info, "simple");
+        return DriverManager.getConnection(properties.determineUrl(), info);
+    }
+
+    /**
+     * @return a connection in a read-only transaction on the exported snapshot.
+     */
+    private static Connection importSnapshot(DataSource source, String snapshotName) throws SQLException {
+        Connection connection = source.getConnection();
+        try {
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotName + "'");
+                // COPY writes timestamptz in the session time zone, CopyRowDecoder reads UTC
+                statement.execute("SET LOCAL TimeZone = 'UTC'");
+            }
+            return connection;
+        } catch (SQLException e) {
+            close(connection);
+            throw e;
+        }
+    }
+
+    private List<Range> ranges(Connection connection) throws SQLException {
+        var ranges = new ArrayList<Range>();
+        for (TableMapper<?> mapper : mappers) {
+            Table<?> table = table(connection, mapper);
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT min(id), max(id) FROM " + table(mapper))) {
+                rows.next();
+                long min = rows.getLong(1);
+                if (rows.wasNull()) {
+                    continue;
+                }
+                for (long[] range : ResyncService.split(min, rows.getLong(2), exportProperties.getPartitions())) {
+                    ranges.add(new Range(table, range[0], range[1]));
+                }
+            }
+        }
+        return ranges;
+    }
+
+    private static <T> Table<T> table(Connection connection, TableMapper<T> mapper) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT * FROM " + table(mapper) + " LIMIT 0")) {
+            ResultSetMetaData metaData = rows.getMetaData();
+            var columns = new String[metaData.getColumnCount()];
+            var typeNames = new String[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = metaData.getColumnName(i + 1);
+                typeNames[i] = metaData.getColumnTypeName(i + 1);
+            }
+            String columnList = Arrays.stream(columns).map(SnapshotExporter::quote).collect(Collectors.joining(", "));
+            return new Table<>(mapper, new CopyRowDecoder<>(mapper.getRowType(), columns, typeNames), columnList);
+        }
+    }
+
+    private void copyRanges(Export export, Connection connection, Queue<Range> ranges) {
+        Range range;
+        while (!export.cancelled && (range = ranges.poll()) != null) {
+            try {
+                copy(export, connection, range.table, range.from, range.to);
+            } catch (SQLException e) {
+                throw new UncategorizedSQLException("Snapshot export of " + range.table.mapper.getInputTable(), null, e);
+            }
+        }
+    }
+
+    private <T> void copy(Export export, Connection connection, Table<T> table, long from, long to) throws SQLException {
+        TableMapper<T> mapper = table.mapper;
+        String sql = "COPY (SELECT " + table.columnList + " FROM " + table(mapper)
+            + " WHERE id >= " + from + " AND id <= " + to + ") TO STDOUT";
+        CopyOut copy = connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql);
+        CompletableFuture<Void> inFlight = NOTHING_TO_SEND;
+        try {
+            var batch = new ArrayList<T>(snapshotProperties.getBatchSize());
+            byte[] row;
+            // The server sends one row per message
+            while (!export.cancelled && (row = copy.readFromCopy()) != null) {
+                batch.add(table.decoder.decode(row));
+                if (batch.size() >= snapshotProperties.getBatchSize()) {
+                    inFlight.join();
+                    inFlight = publish(export, mapper, batch);
+                }
+            }
+            if (!export.cancelled && !batch.isEmpty()) {
+                inFlight.join();
+                inFlight = publish(export, mapper, batch);
+            }
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+        inFlight.join();
+    }
+
+    /**
+     * Hands the batch to the snapshot pipeline and clears it, the pipeline copies what it publishes.
+     */
+    private <T> CompletableFuture<Void> publish(Export export, TableMapper<T> mapper, List<T> batch) {
+        int count = batch.size();
+        CompletableFuture<Void> published = snapshotHandler.handleRows(mapper, batch)
+            .thenRun(() -> export.rows(mapper.getInputTable()).add(count));
+        batch.clear();
+        return published;
+    }
+
+    private static void dropSlot(DataSource source, String slotName) {
+        try (Connection connection = source.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT pg_drop_replication_slot(?)")) {
+            statement.setString(1, slotName);
+            statement.execute();
+            log.info("Dropped replication slot {} of the incomplete export", slotName);
+        } catch (SQLException e) {
+            log.warn("Could not drop replication slot {}, drop it before starting Debezium or the next export", slotName, e);
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.rollback();
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Closing export connection failed", e);
+        }
+    }
+
+    private static String table(TableMapper<?> mapper) {
+        return SCHEMA + '.' + mapper.getInputTable();
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private record Table<T>(TableMapper<T> mapper, CopyRowDecoder<T> decoder, String columnList) {
+    }
+
+    private record Range(Table<?> table, long from, long to) {
+    }
+
+    private static final class Export {
+
+        private final long id;
+        private final String slotName;
+        private final Instant started = Instant.now();
+        private final Map<String, LongAdder> rows = new ConcurrentHashMap<>();
+        private volatile String watermark;
+        private volatile boolean cancelled;
+        private volatile Instant finished;
+        private volatile String error;
+
+        private Export(long id, String slotName) {
+            this.id = id;
+            this.slotName = slotName;
+        }
+
+        private LongAdder rows(String table) {
+            return rows.computeIfAbsent(table, key -> new LongAdder());
+        }
+
+        private void finish(Throwable failure) {
+            if (failure != null) {
+                Throwable cause = failure;
+                while (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                error = cause.getMessage();
+                log.warn("Snapshot export {} failed after {} rows", id, totalRows(), cause);
+            } else if (cancelled) {
+                log.info("Snapshot export {} cancelled after {} rows", id, totalRows());
+            } else {
+                log.info("Snapshot export {} done, {} rows. Start live CDC on slot {}, it continues at LSN {}",
+                    id, totalRows(), slotName, watermark);
+            }
+            finished = Instant.now();
+        }
+
+        private long totalRows() {
+            return rows.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        private boolean isFinished() {
+            return finished != null;
+        }
+
+        private ExportStatus status() {
+            String state;
+            if (finished == null) {
+                state = "RUNNING";
+            } else if (error != null) {
+                state = "FAILED";
+            } else {
+                state = cancelled ? "CANCELLED" : "DONE";
+            }
+            var counts = new TreeMap<String, Long>();
+            rows.forEach((table, count) -> counts.put(table, count.sum()));
+            return new ExportStatus(id, state, slotName, watermark, counts, started, finished, error);
+        }
+    }
+
+    /**
+     * @param watermark LSN the slot continues at, {@code null} until the slot is created.
+     * @param rows      published and confirmed rows per input table.
+     */
+    public record ExportStatus(long id, String state, String slotName, String watermark, Map<String, Long> rows,
+                               Instant started, Instant finished, String error) {
+    }
+}
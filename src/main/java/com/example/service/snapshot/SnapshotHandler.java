@@ -0,0 +1,154 @@
+package com.example.service.snapshot;
+
+import com.example.config.SnapshotProperties;
+import com.example.model.queue.ChangeEventBatchDto;
+import com.example.model.queue.DebeziumChangeEvent;
+import com.example.service.CdcEventHandler;
+import com.example.service.CrmChangeEventSender;
+import com.example.service.OutboundEvent;
+import com.example.service.aggregate.CustomerAggregateStore;
+import com.example.service.aggregate.CustomerOrgIndex;
+import com.example.service.mapping.TableMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.example.model.queue.CustomerChangeEventType.INSERT;
+
+/**
+ * Snapshot pipeline: packs batches of "r" rows into multi-record messages per routing key and publishes
+ * them on the bulk channel, with {@code crm.snapshot.singleRecords} also every row as a single
+ * {@code init_registry} insert. Runs on its own consumers, so live changes never wait behind a re-init.
+ * Anything other than a snapshot row is forwarded through the live path.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotHandler {
+
+    private static final CompletableFuture<Void> NOTHING_TO_SEND = CompletableFuture.completedFuture(null);
+
+    private final CdcEventHandler cdcEventHandler;
+    private final CrmChangeEventSender crmChangeEventSender;
+    private final SnapshotProgress snapshotProgress;
+    private final SnapshotProperties snapshotProperties;
+    private final CustomerAggregateStore customerAggregateStore;
+    private final CustomerOrgIndex customerOrgIndex;
+
+    private long nextPermitNanos = System.nanoTime();
+
+    /**
+     * @return one future per input message, in input order.
+     */
+    public <T> List<CompletableFuture<Void>> handleBatch(TableMapper<T> mapper, List<Message> messages) {
+        var results = new ArrayList<CompletableFuture<Void>>(messages.size());
+        var groups = new LinkedHashMap<String, Group>();
+        for (Message message : messages) {
+            try {
+                DebeziumChangeEvent<T> event = cdcEventHandler.decode(mapper, message);
+                if (event == null) {
+                    results.add(NOTHING_TO_SEND);
+                } else if (!"r".equals(event.getOperation())) {
+                    results.add(cdcEventHandler.forward(mapper, event));
+                } else {
+                    Group group = add(groups, mapper, event.getAfter());
+                    group.positions.add(results.size());
+                    results.add(null);
+                }
+            } catch (MessageConversionException e) {
+                results.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        for (Map.Entry<String, Group> entry : groups.entrySet()) {
+            CompletableFuture<Void> published = publish(mapper, entry.getKey(), entry.getValue());
+            for (int position : entry.getValue().positions) {
+                results.set(position, published);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Publishes snapshot rows read straight from the database (see {@link SnapshotExporter}) like
+     * snapshot rows from Debezium.
+     *
+     * @return completed once every row is confirmed.
+     */
+    public <T> CompletableFuture<Void> handleRows(TableMapper<T> mapper, List<T> rows) {
+        var groups = new LinkedHashMap<String, Group>();
+        for (T row : rows) {
+            add(groups, mapper, row);
+        }
+        var published = new CompletableFuture<?>[groups.size()];
+        int i = 0;
+        for (Map.Entry<String, Group> entry : groups.entrySet()) {
+            published[i++] = publish(mapper, entry.getKey(), entry.getValue());
+        }
+        return CompletableFuture.allOf(published);
+    }
+
+    private <T> Group add(Map<String, Group> groups, TableMapper<T> mapper, T row) {
+        customerOrgIndex.accept(mapper, row);
+        Group group = groups.computeIfAbsent(mapper.initBatchRoutingKey(row), key -> new Group(mapper.orgCode(row)));
+        group.records.add(mapper.toRecord(row));
+        if (snapshotProperties.isSingleRecords()) {
+            group.singles.add(new OutboundEvent(mapper.toCreateEvent(row), mapper.initRoutingKey(row), mapper.partitionKey(row)));
+        }
+        if (customerAggregateStore.isEnabled()) {
+            customerAggregateStore.apply(mapper.toCreateEvent(row), false);
+        }
+        return group;
+    }
+
+    private CompletableFuture<Void> publish(TableMapper<?> mapper, String routingKey, Group group) {
+        throttle(group.records.size());
+        var batch = ChangeEventBatchDto.builder()
+            .table(mapper.getOutputTable())
+            .type(INSERT.name())
+            .records(group.records)
+            .build();
+        var published = new CompletableFuture<?>[group.singles.size() + 1];
+        published[0] = crmChangeEventSender.sendBulk(batch, routingKey);
+        for (int i = 0; i < group.singles.size(); i++) {
+            published[i + 1] = crmChangeEventSender.sendBulk(group.singles.get(i));
+        }
+        return CompletableFuture.allOf(published)
+            .thenRun(() -> snapshotProgress.record(mapper.getOutputTable(), group.orgCode, group.records.size()));
+    }
+
+    private synchronized void throttle(int rows) {
+        int maxRowsPerSecond = snapshotProperties.getMaxRowsPerSecond();
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        nextPermitNanos = Math.max(nextPermitNanos, now) + TimeUnit.SECONDS.toNanos(rows) / maxRowsPerSecond;
+        long wait = nextPermitNanos - now - TimeUnit.SECONDS.toNanos(1);
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private static final class Group {
+
+        private final String orgCode;
+        private final List<Map<String, Object>> records = new ArrayList<>();
+        private final List<OutboundEvent> singles = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+
+        private Group(String orgCode) {
+            this.orgCode = orgCode;
+        }
+    }
+}
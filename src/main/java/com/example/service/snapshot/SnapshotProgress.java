@@ -0,0 +1,49 @@
+package com.example.service.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forwarded snapshot rows per table and org code.
+ */
+@Slf4j
+@Component
+public class SnapshotProgress {
+
+    private static final String NO_ORG_CODE = "-";
+    private static final long LOG_EVERY_ROWS = 100_000;
+
+    private final Map<String, Map<String, LongAdder>> rows = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> tableRows = new ConcurrentHashMap<>();
+
+    public void record(String table, String orgCode, int count) {
+        rows.computeIfAbsent(table, key -> new ConcurrentHashMap<>())
+            .computeIfAbsent(orgCode == null ? NO_ORG_CODE : orgCode, key -> new LongAdder())
+            .add(count);
+
+        LongAdder total = tableRows.computeIfAbsent(table, key -> new LongAdder());
+        long before = total.sum();
+        total.add(count);
+        if (before / LOG_EVERY_ROWS != (before + count) / LOG_EVERY_ROWS) {
+            log.info("Snapshot progress {}: {} rows", table, before + count);
+        }
+    }
+
+    /**
+     * @return table -> org code -> forwarded rows.
+     */
+    public Map<String, Map<String, Long>> snapshot() {
+        var result = new TreeMap<String, Map<String, Long>>();
+        rows.forEach((table, byOrgCode) -> {
+            var counts = new TreeMap<String, Long>();
+            byOrgCode.forEach((orgCode, count) -> counts.put(orgCode, count.sum()));
+            result.put(table, counts);
+        });
+        return result;
+    }
+}
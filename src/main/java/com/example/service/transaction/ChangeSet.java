@@ -0,0 +1,59 @@
+package com.example.service.transaction;
+
+import com.example.service.mapping.RowChangeEvent;
+import com.example.service.publish.OutboundBody;
+
+import java.util.List;
+
+/**
+ * Tracked changes of one source transaction in commit order, ready to be published.
+ *
+ * @param orgCode org code of the customers it changes, {@link #MIXED_ORG_CODE} for several. {@code null}
+ *                without org routing ({@code crm.routing.childOrgCode}).
+ */
+public record ChangeSet(String transactionId, Long commitTimestamp, String orgCode, List<RowChangeEvent<?>> events) {
+
+    public static final String ROUTING_KEY_SUFFIX = "changeSet";
+    /**
+     * Routing key segment of change sets touching customers of more than one org code.
+     */
+    public static final String MIXED_ORG_CODE = "mixed";
+    /**
+     * All change sets share one publisher channel, so they stay in commit order. Single events go out on the
+     * channel of their partition key, with no order relative to change sets.
+     */
+    public static final long ORDERING_KEY = 0;
+
+    /**
+     * @return {@code changeSet}, or {@code changeSet.<orgCode>} with org routing.
+     */
+    public String routingKeySuffix() {
+        return orgCode == null ? ROUTING_KEY_SUFFIX : ROUTING_KEY_SUFFIX + '.' + orgCode;
+    }
+
+    /**
+     * @param delta write the events in their delta form, see {@link RowChangeEvent#writeDelta}.
+     */
+    public OutboundBody body(boolean delta) {
+        return generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("transactionId", transactionId);
+            generator.writeFieldName("commitTimestamp");
+            if (commitTimestamp == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(commitTimestamp);
+            }
+            generator.writeArrayFieldStart("events");
+            for (RowChangeEvent<?> event : events) {
+                if (delta) {
+                    event.writeDelta(generator);
+                } else {
+                    event.write(generator);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        };
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.service.transaction;
+
+import com.example.config.TransactionProperties;
+import com.example.model.queue.DebeziumChangeEvent;
+import com.example.model.queue.DebeziumChangeEvent.Transaction;
+import com.example.model.queue.DebeziumTransactionEvent;
+import com.example.model.queue.DebeziumTransactionEvent.DataCollection;
+import com.example.service.CrmChangeEventSender;
+import com.example.service.DebeziumEventDecoder;
+import com.example.service.OutboundEvent;
+import com.example.service.aggregate.CustomerOrgIndex;
+import com.example.service.mapping.RowChangeEvent;
+import com.example.service.mapping.TableMapping;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.example.model.queue.DebeziumTransactionEvent.BEGIN;
+import static com.example.model.queue.DebeziumTransactionEvent.END;
+
+/**
+ * Groups the live changes of one source transaction into a {@link ChangeSet}. Debezium delivers the rows
+ * on the table queues and the BEGIN/END on the transaction queue, with no order between the queues. Mapped
+ * events are buffered per transaction id. A transaction is complete once its END arrived and every tracked
+ * event it counts was received. Complete transactions are published in BEGIN (commit) order on one
+ * channel, so one waits for the incomplete ones before it.
+ * <p>
+ * Change sets come on top of the single events, which the caller publishes as usual on the channel of their
+ * partition key. A transaction is released without a change set when it stays incomplete for
+ * {@code crm.transaction.timeout}, holds more than {@code maxEvents} tracked events, or is the oldest one
+ * while more than {@code maxBufferedEvents} are buffered. Releasing a transaction releases the ones before
+ * it too. So the change set stream is in commit order and has no partial sets, but misses the released
+ * transactions, and there is no order between it and the single events.
+ * All state is owned by one thread.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChangeSetAssembler {
+
+    private static final CompletableFuture<Void> NOTHING_TO_SEND = CompletableFuture.completedFuture(null);
+    /**
+     * Released transaction ids remembered to ignore their late events.
+     */
+    private static final int RELEASED_CAPACITY = 10_000;
+
+    private final TransactionProperties transactionProperties;
+    private final CrmChangeEventSender crmChangeEventSender;
+    private final List<TableMapping<?>> tableMappings;
+    private final CustomerOrgIndex customerOrgIndex;
+    private final MeterRegistry meterRegistry;
+
+    // Insertion order: the oldest transaction comes first
+    private final Map<String, PendingTransaction> pending = new LinkedHashMap<>();
+    private final ArrayDeque<PendingTransaction> commitOrder = new ArrayDeque<>();
+    private final Set<String> released = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > RELEASED_CAPACITY;
+        }
+    });
+    private Set<String> trackedCollections;
+    private ScheduledExecutorService executor;
+    private volatile int openTransactions;
+    private volatile int bufferedEvents;
+
+    @PostConstruct
+    public void init() {
+        if (!transactionProperties.isEnabled()) {
+            return;
+        }
+        trackedCollections = tableMappings.stream()
+            .map(mapping -> DebeziumEventDecoder.dataCollection(mapping.getInputTable()))
+            .collect(Collectors.toUnmodifiableSet());
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crm-transaction-assembler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * @return whether the event is grouped by its transaction instead of being published singly.
+     */
+    public boolean isGrouped(DebeziumChangeEvent<?> event) {
+        Transaction transaction = event.getTransaction();
+        return executor != null && transaction != null && transaction.getId() != null;
+    }
+
+    /**
+     * Adds a grouped event. {@code mapped} is {@code null} for an event without output (unchanged or
+     * duplicate), it still counts towards its transaction.
+     *
+     * @return completed once the change set carrying the change is confirmed, or its transaction is released
+     * without one.
+     */
+    public CompletableFuture<Void> add(DebeziumChangeEvent<?> event, OutboundEvent mapped) {
+        Transaction transaction = event.getTransaction();
+        long order = transaction.getTotalOrder() == null ? Long.MAX_VALUE : transaction.getTotalOrder();
+        return CompletableFuture.supplyAsync(() -> add(transaction.getId(), order, mapped), executor)
+            .thenCompose(Function.identity());
+    }
+
+    /**
+     * Applies a BEGIN or END from the transaction queue.
+     */
+    public void accept(DebeziumTransactionEvent event) {
+        executor.execute(() -> {
+            if (BEGIN.equals(event.getStatus())) {
+                begin(event.getId());
+            } else if (END.equals(event.getStatus())) {
+                end(event);
+            }
+        });
+    }
+
+    public int openTransactions() {
+        return openTransactions;
+    }
+
+    public int bufferedEvents() {
+        return bufferedEvents;
+    }
+
+    private CompletableFuture<Void> add(String id, long order, OutboundEvent mapped) {
+        if (released.contains(id)) {
+            return NOTHING_TO_SEND;
+        }
+        PendingTransaction transaction = open(id);
+        transaction.received++;
+        if (mapped == null) {
+            publishCompleted();
+            return NOTHING_TO_SEND;
+        }
+        var buffered = new BufferedEvent(order, mapped, new CompletableFuture<>());
+        transaction.events.add(buffered);
+        bufferedEvents++;
+        if (transaction.events.size() > transactionProperties.getMaxEvents()) {
+            releaseThrough(transaction, "oversized");
+        }
+        while (bufferedEvents > transactionProperties.getMaxBufferedEvents() && !pending.isEmpty()) {
+            releaseThrough(pending.values().iterator().next(), "overflow");
+        }
+        publishCompleted();
+        return buffered.published;
+    }
+
+    private void begin(String id) {
+        if (released.contains(id)) {
+            return;
+        }
+        inCommitOrder(open(id));
+    }
+
+    private void end(DebeziumTransactionEvent event) {
+        if (released.contains(event.getId())) {
+            return;
+        }
+        PendingTransaction transaction = open(event.getId());
+        // Without a BEGIN (e.g. after a restart) the END decides the position
+        inCommitOrder(transaction);
+        transaction.expected = trackedEvents(event);
+        transaction.commitTimestamp = event.getTimestamp();
+        if (transaction.expected > transactionProperties.getMaxEvents()) {
+            releaseThrough(transaction, "oversized");
+        }
+        publishCompleted();
+    }
+
+    private long trackedEvents(DebeziumTransactionEvent event) {
+        if (event.getDataCollections() == null) {
+            return event.getEventCount() == null ? 0 : event.getEventCount();
+        }
+        long count = 0;
+        for (DataCollection collection : event.getDataCollections()) {
+            if (trackedCollections.contains(collection.getDataCollection()) && collection.getEventCount() != null) {
+                count += collection.getEventCount();
+            }
+        }
+        return count;
+    }
+
+    private PendingTransaction open(String id) {
+        PendingTransaction transaction = pending.get(id);
+        if (transaction == null) {
+            var created = new PendingTransaction(id);
+            pending.put(id, created);
+            openTransactions = pending.size();
+            executor.schedule(() -> timeout(created), transactionProperties.getTimeout(), TimeUnit.MILLISECONDS);
+            transaction = created;
+        }
+        return transaction;
+    }
+
+    private void inCommitOrder(PendingTransaction transaction) {
+        if (!transaction.ordered) {
+            transaction.ordered = true;
+            commitOrder.addLast(transaction);
+        }
+    }
+
+    private void timeout(PendingTransaction transaction) {
+        if (pending.get(transaction.id) != transaction) {
+            return;
+        }
+        log.warn("Transaction {} incomplete after {} ms ({} events received, {} expected), releasing as single events",
+            transaction.id, transactionProperties.getTimeout(), transaction.received,
+            transaction.expected < 0 ? "END missing" : transaction.expected);
+        releaseThrough(transaction, "timeout");
+        publishCompleted();
+    }
+
+    private void publishCompleted() {
+        while (!commitOrder.isEmpty() && commitOrder.peekFirst().isComplete()) {
+            release(commitOrder.pollFirst(), null);
+        }
+    }
+
+    /**
+     * Releases the transaction and every transaction before it in commit order. Complete ones before it
+     * are still published as change sets.
+     */
+    private void releaseThrough(PendingTransaction transaction, String reason) {
+        if (!transaction.ordered) {
+            release(transaction, reason);
+            return;
+        }
+        PendingTransaction head;
+        do {
+            head = commitOrder.pollFirst();
+            release(head, head != transaction && head.isComplete() ? null : reason);
+        } while (head != transaction);
+    }
+
+    /**
+     * @param reason why the transaction is released without a change set, {@code null} for a change set.
+     */
+    private void release(PendingTransaction transaction, String reason) {
+        pending.remove(transaction.id);
+        released.add(transaction.id);
+        openTransactions = pending.size();
+        bufferedEvents -= transaction.events.size();
+        transaction.events.sort(Comparator.comparingLong(BufferedEvent::order));
+        if (reason == null) {
+            if (!transaction.events.isEmpty()) {
+                var events = new ArrayList<RowChangeEvent<?>>(transaction.events.size());
+                for (BufferedEvent buffered : transaction.events) {
+                    events.add(buffered.outbound.event());
+                }
+                var changeSet = new ChangeSet(transaction.id, transaction.commitTimestamp, orgCode(transaction.events), events);
+                var published = crmChangeEventSender.sendChangeSet(changeSet);
+                for (BufferedEvent buffered : transaction.events) {
+                    completeWith(buffered, published);
+                }
+            }
+            released("complete");
+        } else {
+            for (BufferedEvent buffered : transaction.events) {
+                buffered.published.complete(null);
+            }
+            released(reason);
+        }
+    }
+
+    /**
+     * @return org code of the customers the events belong to (partition key), {@code null} without org routing.
+     */
+    private String orgCode(List<BufferedEvent> events) {
+        if (!customerOrgIndex.isEnabled()) {
+            return null;
+        }
+        String orgCode = null;
+        for (BufferedEvent buffered : events) {
+            String segment = customerOrgIndex.routingSegment(buffered.outbound.partitionKey());
+            if (orgCode == null) {
+                orgCode = segment;
+            } else if (!orgCode.equals(segment)) {
+                return ChangeSet.MIXED_ORG_CODE;
+            }
+        }
+        return orgCode;
+    }
+
+    private void released(String reason) {
+        Counter.builder("crm.transaction.released")
+            .description("Transactions published as change set (complete) or released without one")
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static void completeWith(BufferedEvent buffered, CompletableFuture<Void> published) {
+        published.whenComplete((result, error) -> {
+            if (error == null) {
+                buffered.published.complete(null);
+            } else {
+                buffered.published.completeExceptionally(error);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private record BufferedEvent(long order, OutboundEvent outbound, CompletableFuture<Void> published) {
+    }
+
+    private static final class PendingTransaction {
+
+        private final String id;
+        private final List<BufferedEvent> events = new ArrayList<>();
+        private long received;
+        private long expected = -1;
+        private Long commitTimestamp;
+        private boolean ordered;
+
+        private PendingTransaction(String id) {
+            this.id = id;
+        }
+
+        private boolean isComplete() {
+            return expected >= 0 && received >= expected;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.service;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class DeliveryAcknowledgerTest {
+
+    private final DeliveryAcknowledger acknowledger = new DeliveryAcknowledger();
+    private final Channel channel = mock(Channel.class);
+
+    @Test
+    void acksInDeliveryOrderWhenCompletedOutOfOrder() throws Exception {
+        var first = deliver(1);
+        var second = deliver(2);
+        var third = deliver(3);
+
+        third.complete(null);
+        verifyNoInteractions(channel);
+
+        first.complete(null);
+        second.complete(null);
+
+        InOrder acks = inOrder(channel);
+        acks.verify(channel).basicAck(1, true);
+        acks.verify(channel).basicAck(3, true);
+        acks.verifyNoMoreInteractions();
+    }
+
+    @Test
+    void requeuesFailedPublishAndAcksTheDeliveriesAroundIt() throws Exception {
+        var first = deliver(1);
+        var second = deliver(2);
+        var third = deliver(3);
+
+        second.completeExceptionally(new IllegalStateException("nacked by broker"));
+        third.complete(null);
+        first.complete(null);
+
+        InOrder acks = inOrder(channel);
+        acks.verify(channel).basicNack(2, false, true);
+        acks.verify(channel).basicAck(3, true);
+        acks.verifyNoMoreInteractions();
+    }
+
+    @Test
+    void rejectsUndecodableDeliveryWithoutRequeue() throws Exception {
+        deliver(1).completeExceptionally(new MessageConversionException("not a Debezium envelope"));
+
+        verify(channel).basicReject(1, false);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void tracksDeliveriesPerChannel() throws Exception {
+        var otherChannel = mock(Channel.class);
+        deliver(1);
+        var other = new CompletableFuture<Void>();
+        acknowledger.acknowledge(otherChannel, 2, other);
+
+        other.complete(null);
+
+        verify(otherChannel).basicAck(2, true);
+        verifyNoInteractions(channel);
+    }
+
+    @Test
+    void forgetsDeliveriesOfReopenedChannel() throws Exception {
+        var beforeRecovery = deliver(5);
+        var afterRecovery = deliver(1);
+
+        afterRecovery.complete(null);
+        beforeRecovery.complete(null);
+
+        verify(channel).basicAck(1, true);
+        verify(channel, never()).basicAck(5, true);
+    }
+
+    private CompletableFuture<Void> deliver(long deliveryTag) {
+        var completion = new CompletableFuture<Void>();
+        acknowledger.acknowledge(channel, deliveryTag, completion);
+        return completion;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.service;
+
+import com.example.config.DispatchProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyOrderedDispatcherTest {
+
+    private final DispatchProperties dispatchProperties = new DispatchProperties();
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    private final List<CompletableFuture<Void>> dispatched = new ArrayList<>();
+    private KeyOrderedDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.destroy();
+    }
+
+    @Test
+    void keepsOrderOfEachKeyAcrossPriorities() throws Exception {
+        start(1, 0.8);
+        CountDownLatch gate = blockLane(99);
+
+        dispatch(1, Priority.LIVE, "a1");
+        dispatch(2, Priority.BULK, "b2");
+        dispatch(1, Priority.LIVE, "c1");
+        dispatch(2, Priority.LIVE, "d2");
+        dispatch(3, Priority.BULK, "e3");
+        dispatch(3, Priority.LIVE, "f3");
+        gate.countDown();
+        awaitDispatched();
+
+        assertThat(executed).containsSubsequence("a1", "c1");
+        assertThat(executed).containsSubsequence("b2", "d2");
+        assertThat(executed).containsSubsequence("e3", "f3");
+    }
+
+    @Test
+    void runsLiveWorkOfOtherKeysBeforeBulkWork() throws Exception {
+        start(1, 1);
+        CountDownLatch gate = blockLane(99);
+
+        dispatch(1, Priority.BULK, "a1");
+        dispatch(2, Priority.BULK, "b2");
+        dispatch(3, Priority.LIVE, "c3");
+        // Key 1 has bulk work queued, so its live work waits behind it
+        dispatch(1, Priority.LIVE, "d1");
+        dispatch(4, Priority.LIVE, "e4");
+        gate.countDown();
+        awaitDispatched();
+
+        assertThat(executed).containsExactly("c3", "e4", "a1", "b2", "d1");
+    }
+
+    @Test
+    void runsMultiKeyWorkInOrderWithEachOfItsKeys() throws Exception {
+        start(1, 1);
+        CountDownLatch gate = blockLane(99);
+
+        dispatch(1, Priority.LIVE, "a1");
+        dispatch(2, Priority.BULK, "b2");
+        dispatch(new long[] {1, 2, 2}, Priority.LIVE, "c12");
+        dispatch(1, Priority.LIVE, "d1");
+        dispatch(3, Priority.LIVE, "e3");
+        dispatch(4, Priority.BULK, "f4");
+        gate.countDown();
+        awaitDispatched();
+
+        assertThat(executed).containsExactly("a1", "e3", "b2", "c12", "d1", "f4");
+        assertThat(dispatcher.executed(Priority.LIVE)).isEqualTo(3);
+        assertThat(dispatcher.executed(Priority.BULK)).isEqualTo(4);
+    }
+
+    @Test
+    void rejectsKeysOfDifferentLanes() {
+        start(2, 0.8);
+        long other = 2;
+        while (KeyOrderedDispatcher.lane(other, 2) == KeyOrderedDispatcher.lane(1, 2)) {
+            other++;
+        }
+        long[] keys = {1, other};
+
+        assertThatThrownBy(() -> dispatcher.dispatch(keys, Priority.LIVE, () -> CompletableFuture.completedFuture(null)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void failsWorkThatThrows() {
+        start(1, 0.8);
+
+        var result = dispatcher.dispatch(1, () -> {
+            throw new IllegalStateException("mapping failed");
+        });
+
+        assertThat(result).failsWithin(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void runsOnCallerWhenDisabled() {
+        dispatchProperties.setEnabled(false);
+        start(1, 0.8);
+
+        dispatch(1, Priority.BULK, "a1");
+
+        assertThat(dispatcher.isEnabled()).isFalse();
+        assertThat(executed).containsExactly("a1");
+    }
+
+    private void start(int lanes, double liveShare) {
+        dispatchProperties.setLanes(lanes);
+        dispatchProperties.setLiveShare(liveShare);
+        dispatcher = new KeyOrderedDispatcher(dispatchProperties, new MockEnvironment());
+        dispatcher.init();
+    }
+
+    /**
+     * Occupies the lane of the key until the returned latch is counted down, so the work dispatched meanwhile
+     * queues up.
+     */
+    private CountDownLatch blockLane(long key) throws InterruptedException {
+        var running = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        dispatched.add(dispatcher.dispatch(key, Priority.LIVE, () -> {
+            running.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.completedFuture(null);
+        }));
+        assertThat(running.await(1, TimeUnit.SECONDS)).isTrue();
+        return gate;
+    }
+
+    private void dispatch(long key, Priority priority, String name) {
+        dispatch(new long[] {key}, priority, name);
+    }
+
+    private void dispatch(long[] keys, Priority priority, String name) {
+        dispatched.add(dispatcher.dispatch(keys, priority, record(name)));
+    }
+
+    private Supplier<CompletableFuture<Void>> record(String name) {
+        return () -> {
+            executed.add(name);
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+
+    private void awaitDispatched() throws Exception {
+        CompletableFuture.allOf(dispatched.toArray(CompletableFuture[]::new)).get(1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.service;
+
+import com.example.config.DispatchProperties;
+import com.example.model.queue.DebeziumChangeEvent;
+import com.example.model.queue.DebeziumChangeEvent.Source;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriorityClassifierTest {
+
+    private final DispatchProperties dispatchProperties = new DispatchProperties();
+    private final PriorityClassifier classifier = new PriorityClassifier(dispatchProperties);
+
+    @Test
+    void snapshotReadsAreBulk() {
+        assertThat(classifier.classify(event("r", null))).isEqualTo(Priority.BULK);
+    }
+
+    @Test
+    void largeTransactionTurnsBulkAfterThreshold() {
+        dispatchProperties.setBulkTransactionEvents(2);
+
+        assertThat(classifier.classify(event("u", 1L))).isEqualTo(Priority.LIVE);
+        assertThat(classifier.classify(event("u", 1L))).isEqualTo(Priority.LIVE);
+        assertThat(classifier.classify(event("u", 1L))).isEqualTo(Priority.BULK);
+        assertThat(classifier.classify(event("u", 2L))).isEqualTo(Priority.LIVE);
+    }
+
+    @Test
+    void keepsCountOfRunningTransactionWhileManySmallOnesPass() {
+        dispatchProperties.setBulkTransactionEvents(3);
+        classifier.classify(event("u", 1L));
+        classifier.classify(event("u", 1L));
+        classifier.classify(event("u", 1L));
+
+        for (long txId = 100; txId < 5000; txId++) {
+            classifier.classify(event("c", txId));
+            assertThat(classifier.classify(event("u", 1L))).isEqualTo(Priority.BULK);
+        }
+    }
+
+    @Test
+    void forgetsLeastRecentlySeenTransactions() {
+        dispatchProperties.setBulkTransactionEvents(1);
+        classifier.classify(event("u", 1L));
+        for (long txId = 100; txId < 5000; txId++) {
+            classifier.classify(event("c", txId));
+        }
+
+        assertThat(classifier.classify(event("u", 1L))).isEqualTo(Priority.LIVE);
+    }
+
+    private static DebeziumChangeEvent<Object> event(String operation, Long txId) {
+        var source = new Source();
+        source.setTxId(txId);
+        var event = new DebeziumChangeEvent<Object>();
+        event.setOperation(operation);
+        event.setSource(source);
+        return event;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.service;
+
+import com.example.config.CoalescingProperties;
+import com.example.config.DispatchProperties;
+import com.example.model.queue.CustomerChangeEventType;
+import com.example.service.mapping.RowChangeEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.model.queue.CustomerChangeEventType.DELETE;
+import static com.example.model.queue.CustomerChangeEventType.UPDATE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UpdateCoalescerTest {
+
+    private static final String TABLE = "crm.customer_address";
+    private static final long WINDOW = 50;
+
+    private final CoalescingProperties coalescingProperties = new CoalescingProperties();
+    private final DispatchProperties dispatchProperties = new DispatchProperties();
+    private final CrmChangeEventSender sender = mock(CrmChangeEventSender.class);
+    private final CompletableFuture<Void> confirmed = new CompletableFuture<>();
+    private KeyOrderedDispatcher dispatcher;
+    private UpdateCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescingProperties.setEnabled(true);
+        coalescingProperties.setWindow(WINDOW);
+        dispatchProperties.setLanes(2);
+        when(sender.send(any())).thenReturn(confirmed);
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.destroy();
+        dispatcher.destroy();
+    }
+
+    @Test
+    void mergesUpdatesOfARowWithinTheWindow() throws Exception {
+        start();
+        var first = outbound(UPDATE, 7, 1);
+        var second = outbound(UPDATE, 7, 1);
+
+        var firstPublished = coalescer.submit(first);
+        var secondPublished = coalescer.submit(second);
+
+        verify(first.event()).merge(second.event());
+        verify(sender, timeout(1000)).send(first);
+        verify(sender, never()).send(second);
+        assertThat(secondPublished).isSameAs(firstPublished).isNotDone();
+        confirmed.complete(null);
+        firstPublished.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void flushesPendingUpdateBeforeDelete() {
+        start();
+        var update = outbound(UPDATE, 7, 1);
+        var delete = outbound(DELETE, 7, 1);
+
+        coalescer.submit(update);
+        coalescer.submit(delete);
+
+        InOrder sends = inOrder(sender);
+        sends.verify(sender).send(update);
+        sends.verify(sender).send(delete);
+        verify(sender, after(2 * WINDOW).times(1)).send(update);
+    }
+
+    @Test
+    void flushesInsteadOfMergingWhenThePartitionKeyChanges() {
+        start();
+        // The row's customer_id changed between the two updates
+        var first = outbound(UPDATE, 7, 1);
+        var second = outbound(UPDATE, 7, 2);
+
+        coalescer.submit(first);
+        var secondPublished = coalescer.submit(second);
+
+        verify(sender).send(first);
+        verify(first.event(), never()).merge(any());
+        verify(sender, never()).send(second);
+        verify(sender, timeout(1000)).send(second);
+        verify(sender, after(2 * WINDOW).times(1)).send(first);
+        confirmed.complete(null);
+        assertThat(secondPublished).succeedsWithin(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void publishesRightAwayWhenTooManyRowsArePending() {
+        coalescingProperties.setMaxPending(1);
+        start();
+        var first = outbound(UPDATE, 7, 1);
+        var other = outbound(UPDATE, 8, 1);
+
+        coalescer.submit(first);
+        assertThat(coalescer.submit(other)).isSameAs(confirmed);
+
+        verify(sender).send(other);
+        verify(sender, never()).send(first);
+    }
+
+    @Test
+    void publishesEveryEventWhenDisabled() {
+        coalescingProperties.setEnabled(false);
+        start();
+        var first = outbound(UPDATE, 7, 1);
+        var second = outbound(UPDATE, 7, 1);
+
+        coalescer.submitAll(List.of(first, second), 1);
+
+        verify(sender).sendAll(List.of(first, second), 1);
+        verify(first.event(), never()).merge(any());
+    }
+
+    private void start() {
+        dispatcher = new KeyOrderedDispatcher(dispatchProperties, new MockEnvironment());
+        dispatcher.init();
+        coalescer = new UpdateCoalescer(coalescingProperties, dispatcher, sender);
+        coalescer.init();
+    }
+
+    private static OutboundEvent outbound(CustomerChangeEventType type, long id, long partitionKey) {
+        RowChangeEvent<?> event = mock(RowChangeEvent.class);
+        when(event.getTable()).thenReturn(TABLE);
+        when(event.getId()).thenReturn(id);
+        when(event.getType()).thenReturn(type);
+        return new OutboundEvent(event, "customer_address.ORG1.v1", partitionKey);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.service.dedup;
+
+import com.example.config.DedupProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LsnDedupIndexTest {
+
+    private static final String TABLE = "crm.customer";
+
+    @Test
+    void dropsEventsNotNewerThanTheRecordedLsn() {
+        var index = index(1024);
+        index.record(TABLE, 7, 100L);
+
+        assertThat(index.isDuplicate(TABLE, 7, 99L)).isTrue();
+        assertThat(index.isDuplicate(TABLE, 7, 100L)).isTrue();
+        assertThat(index.isDuplicate(TABLE, 7, 101L)).isFalse();
+        assertThat(index.isDuplicate(TABLE, 8, 50L)).isFalse();
+        assertThat(index.isDuplicate("crm.id_document", 7, 50L)).isFalse();
+        assertThat(index.stats().lookups()).isEqualTo(5);
+        assertThat(index.stats().duplicates()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsTheLatestLsnOfARow() {
+        var index = index(1024);
+        index.record(TABLE, 7, 200L);
+        index.record(TABLE, 7, 100L);
+
+        assertThat(index.isDuplicate(TABLE, 7, 150L)).isTrue();
+    }
+
+    @Test
+    void forwardsRedeliveryOfAFailedEventWhenALaterOneWasConfirmed() {
+        var index = index(1024);
+        index.record(TABLE, 7, 100L);
+        // 101 is nacked and requeued while 102 of the same row is confirmed
+        index.recordFailure(TABLE, 7, 101L);
+        index.record(TABLE, 7, 102L);
+
+        assertThat(index.isDuplicate(TABLE, 7, 100L)).isTrue();
+        assertThat(index.isDuplicate(TABLE, 7, 101L)).isFalse();
+        index.record(TABLE, 7, 101L);
+
+        // The redelivery got through, later duplicates are dropped again
+        assertThat(index.isDuplicate(TABLE, 7, 101L)).isTrue();
+        assertThat(index.isDuplicate(TABLE, 7, 102L)).isTrue();
+    }
+
+    @Test
+    void forwardsRedeliveryOfAFailedEventConfirmedOutOfOrder() {
+        var index = index(1024);
+        // 6 is confirmed before the publish of 5 fails, the row was not indexed yet
+        index.record(TABLE, 8, 6L);
+        index.recordFailure(TABLE, 8, 5L);
+        index.recordFailure(TABLE, 9, 5L);
+        index.record(TABLE, 9, 6L);
+
+        assertThat(index.isDuplicate(TABLE, 8, 5L)).isFalse();
+        assertThat(index.isDuplicate(TABLE, 9, 5L)).isFalse();
+    }
+
+    @Test
+    void evictsTheOldestLsnOfAFullSet() {
+        // Rounded up to two sets of four slots
+        var index = index(4);
+        assertThat(index.stats().capacity()).isEqualTo(8);
+        for (long key = 1; key <= 100; key++) {
+            index.record(TABLE, key, key);
+        }
+
+        // At least one set overflowed many times, the oldest rows are gone and the latest ones are kept
+        assertThat(index.isDuplicate(TABLE, 1, 1L)).isFalse();
+        assertThat(index.isDuplicate(TABLE, 100, 100L)).isTrue();
+        int remembered = 0;
+        for (long key = 1; key <= 100; key++) {
+            if (index.isDuplicate(TABLE, key, key)) {
+                remembered++;
+            }
+        }
+        assertThat(remembered).isEqualTo(8);
+    }
+
+    @Test
+    void ignoresEverythingWhenDisabled() {
+        var properties = new DedupProperties();
+        properties.setEnabled(false);
+        var index = new LsnDedupIndex(properties);
+        index.record(TABLE, 7, 100L);
+
+        assertThat(index.isDuplicate(TABLE, 7, 100L)).isFalse();
+        assertThat(index.stats().capacity()).isZero();
+    }
+
+    private static LsnDedupIndex index(int capacity) {
+        var properties = new DedupProperties();
+        properties.setCapacity(capacity);
+        return new LsnDedupIndex(properties);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.service.mapping;
+
+import com.example.config.QueueChangeProperties;
+import com.example.config.QueueChangeProperties.QueueProperties;
+import com.example.config.RoutingProperties;
+import com.example.config.TableMappingConfig;
+import com.example.model.CustomerRelationDto;
+import com.example.model.IdDocumentDto;
+import com.example.service.aggregate.CustomerOrgIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TableMapperTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final TableMappingConfig tableMappingConfig = tableMappingConfig();
+
+    @Test
+    void relationUpdateCarriesThePreviousCustomer() throws Exception {
+        TableMapper<CustomerRelationDto> mapper = tableMappingConfig.customerRelationMapping().compile();
+
+        JsonNode event = write(mapper.toUpdateEvent(relation(1L, 10L), relation(2L, 11L)), false);
+
+        assertThat(event.get("type").asText()).isEqualTo("UPDATE");
+        assertThat(event.get("customerId").asLong()).isEqualTo(1L);
+        assertThat(event.get("relatedCustomerId").asLong()).isEqualTo(10L);
+        assertThat(event.get("before").get("customerId").asLong()).isEqualTo(1L);
+        assertThat(event.get("after").get("customerId").asLong()).isEqualTo(2L);
+        assertThat(event.get("changedFields")).extracting(JsonNode::asText)
+            .containsExactly("customerId", "relatedCustomerId");
+
+        JsonNode delta = write(mapper.toUpdateEvent(relation(1L, 10L), relation(2L, 11L)), true);
+        assertThat(delta.get("customerId").asLong()).isEqualTo(1L);
+    }
+
+    @Test
+    void relationInsertAndDeleteCarryTheirOnlyRow() throws Exception {
+        TableMapper<CustomerRelationDto> mapper = tableMappingConfig.customerRelationMapping().compile();
+
+        assertThat(write(mapper.toCreateEvent(relation(2L, 11L)), false).get("customerId").asLong()).isEqualTo(2L);
+        assertThat(write(mapper.toDeleteEvent(relation(1L, 10L)), false).get("customerId").asLong()).isEqualTo(1L);
+    }
+
+    @Test
+    void documentUpdateCarriesTheCurrentCustomer() throws Exception {
+        TableMapper<IdDocumentDto> mapper = tableMappingConfig.idDocumentMapping().compile();
+        var before = new IdDocumentDto();
+        before.setId(5L);
+        before.setCustomerId(1L);
+        var after = new IdDocumentDto();
+        after.setId(5L);
+        after.setCustomerId(2L);
+
+        assertThat(write(mapper.toUpdateEvent(before, after), false).get("customerId").asLong()).isEqualTo(2L);
+    }
+
+    private JsonNode write(RowChangeEvent<?> event, boolean delta) throws Exception {
+        var json = new StringWriter();
+        try (var generator = objectMapper.createGenerator(json)) {
+            if (delta) {
+                event.writeDelta(generator);
+            } else {
+                event.write(generator);
+            }
+        }
+        return objectMapper.readTree(json.toString());
+    }
+
+    private static CustomerRelationDto relation(Long customerId, Long relatedCustomerId) {
+        var relation = new CustomerRelationDto();
+        relation.setId(7L);
+        relation.setCustomerId(customerId);
+        relation.setRelatedCustomerId(relatedCustomerId);
+        relation.setRelationTypeCode("OWNER");
+        return relation;
+    }
+
+    private static TableMappingConfig tableMappingConfig() {
+        var queueChangeProperties = new QueueChangeProperties();
+        for (String queue : new String[] {"customer", "customerRelation", "idDocument", "idNumber"}) {
+            queueChangeProperties.getChange().put(queue, new QueueProperties());
+        }
+        var routingProperties = new RoutingProperties();
+        return new TableMappingConfig(queueChangeProperties, routingProperties, new CustomerOrgIndex(routingProperties));
+    }
+}
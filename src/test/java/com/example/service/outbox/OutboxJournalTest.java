@@ -0,0 +1,236 @@
+package com.example.service.outbox;
+
+import com.example.config.OutboxProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxJournalTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+    private final OutboxProperties outboxProperties = new OutboxProperties();
+    private OutboxJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        outboxProperties.setEnabled(true);
+        outboxProperties.setDirectory(directory.toString());
+        outboxProperties.setSegmentSize(SEGMENT_SIZE);
+        outboxProperties.setAppendTimeout(0);
+        journal = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.destroy();
+    }
+
+    @Test
+    void readsBackRecordsWithTypedHeaders() {
+        var properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding("UTF-8");
+        properties.setHeader("crm-table", "customer");
+        properties.setHeader("flag", true);
+        properties.setHeader("count", 3);
+        properties.setHeader("lsn", 42L);
+        properties.setHeader("ratio", 0.5);
+        var message = new Message("{\"id\":1}".getBytes(StandardCharsets.UTF_8), properties);
+
+        assertThat(journal.append("crm.update.exchange", "customer.ORG1.v1", message, 7, false)).isCompleted();
+        assertThat(journal.append("crm.update.exchange", "customer.init_batch.v1", message(0), 0, true)).isCompleted();
+
+        OutboxRecord first = journal.read(journal.checkpointPosition());
+        assertThat(first.exchange()).isEqualTo("crm.update.exchange");
+        assertThat(first.routingKey()).isEqualTo("customer.ORG1.v1");
+        assertThat(first.orderingKey()).isEqualTo(7);
+        assertThat(first.bulk()).isFalse();
+        assertThat(first.message().getBody()).isEqualTo(message.getBody());
+        MessageProperties read = first.message().getMessageProperties();
+        assertThat(read.getContentType()).isEqualTo(MessageProperties.CONTENT_TYPE_JSON);
+        assertThat(read.getContentEncoding()).isEqualTo("UTF-8");
+        assertThat(read.getHeaders())
+            .containsEntry("crm-table", "customer")
+            .containsEntry("flag", true)
+            .containsEntry("count", 3)
+            .containsEntry("lsn", 42L)
+            .containsEntry("ratio", 0.5);
+
+        OutboxRecord second = journal.read(first.next());
+        assertThat(second.bulk()).isTrue();
+        assertThat(journal.read(second.next())).isNull();
+    }
+
+    @Test
+    void wrapsIntoNewSegmentsAndDeletesDrainedOnes() {
+        List<Long> positions = appendAll(20);
+
+        assertThat(journal.segmentCount()).isGreaterThan(2);
+        assertThat(readAll(journal.checkpointPosition())).containsExactlyElementsOf(bodies(0, 20));
+
+        int segments = journal.segmentCount();
+        journal.checkpoint(positions.get(15));
+        assertThat(journal.segmentCount()).isLessThan(segments);
+        assertThat(readAll(positions.get(15))).containsExactlyElementsOf(bodies(15, 20));
+        assertThat(journal.backlog()).isPositive();
+    }
+
+    @Test
+    void resumesFromCheckpointAfterRestart() throws IOException {
+        List<Long> positions = appendAll(10);
+        journal.checkpoint(positions.get(4));
+        journal.destroy();
+
+        journal = open();
+
+        assertThat(journal.checkpointPosition()).isEqualTo(positions.get(4));
+        assertThat(readAll(journal.checkpointPosition())).containsExactlyElementsOf(bodies(4, 10));
+        journal.append("crm.update.exchange", "customer.ORG1.v1", message(10), 10, false);
+        assertThat(readAll(journal.checkpointPosition())).containsExactlyElementsOf(bodies(4, 11));
+    }
+
+    @Test
+    void dropsTornTailOnRecovery() throws IOException {
+        List<Long> positions = appendAll(3);
+        journal.destroy();
+        // Corrupt the payload of the last record
+        long last = positions.get(2);
+        Path segment = directory.resolve(String.format("%020d.seg", last / SEGMENT_SIZE));
+        try (var channel = FileChannel.open(segment, WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f, 0x7f}), last % SEGMENT_SIZE + 12);
+        }
+
+        journal = open();
+
+        assertThat(readAll(journal.checkpointPosition())).containsExactlyElementsOf(bodies(0, 2));
+        journal.append("crm.update.exchange", "customer.ORG1.v1", message(3), 3, false);
+        assertThat(readAll(journal.checkpointPosition())).containsExactly("0", "1", "3");
+    }
+
+    @Test
+    void failsAppendsWhenAllSegmentsAreInUse() {
+        outboxProperties.setMaxSegments(2);
+        appendAll(2);
+
+        var appended = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 2; i < 10; i++) {
+            appended.add(journal.append("crm.update.exchange", "customer.ORG1.v1", message(i), i, false));
+        }
+
+        assertThat(journal.segmentCount()).isEqualTo(2);
+        assertThat(appended.get(appended.size() - 1)).failsWithin(Duration.ZERO)
+            .withThrowableOfType(ExecutionException.class)
+            .withCauseInstanceOf(IllegalStateException.class);
+
+        // Draining the first segment makes room again
+        journal.checkpoint(SEGMENT_SIZE);
+        assertThat(journal.append("crm.update.exchange", "customer.ORG1.v1", message(10), 10, false)).isCompleted();
+    }
+
+    @Test
+    void keepsRecordsIntactWhenAppendsWaitForAFullJournal() throws Exception {
+        outboxProperties.setMaxSegments(2);
+        outboxProperties.setAppendTimeout(5000);
+        int writers = 4;
+        int perWriter = 50;
+        var appended = new ArrayList<CompletableFuture<Void>>();
+        for (int writer = 0; writer < writers; writer++) {
+            int first = writer * 1000;
+            appended.add(CompletableFuture.runAsync(() -> {
+                for (int i = first; i < first + perWriter; i++) {
+                    journal.append("crm.update.exchange", "customer.ORG1.v1", message(i), i, false).join();
+                }
+            }));
+        }
+
+        // Drains like OutboxDrainer: the writers keep waiting for the journal to free a segment
+        var read = new ArrayList<Integer>();
+        long position = journal.checkpointPosition();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (read.size() < writers * perWriter && System.nanoTime() < deadline) {
+            OutboxRecord record = journal.read(position);
+            if (record == null) {
+                journal.awaitAppend(position, TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+            int body = Integer.parseInt(new String(record.message().getBody(), StandardCharsets.UTF_8));
+            assertThat(record.orderingKey()).isEqualTo(body);
+            read.add(body);
+            position = record.next();
+            journal.checkpoint(position);
+        }
+
+        CompletableFuture.allOf(appended.toArray(CompletableFuture[]::new)).get(1, TimeUnit.SECONDS);
+        assertThat(journal.read(position)).isNull();
+        for (int writer = 0; writer < writers; writer++) {
+            int first = writer * 1000;
+            assertThat(read.stream().filter(body -> body / 1000 == first / 1000))
+                .containsExactlyElementsOf(IntStream.range(first, first + perWriter).boxed().toList());
+        }
+    }
+
+    private OutboxJournal open() throws IOException {
+        var opened = new OutboxJournal(outboxProperties);
+        opened.init();
+        return opened;
+    }
+
+    /**
+     * @return journal position of every appended record.
+     */
+    private List<Long> appendAll(int count) {
+        var positions = new ArrayList<Long>(count);
+        for (int i = 0; i < count; i++) {
+            long position = journal.checkpointPosition() + journal.backlog();
+            assertThat(journal.append("crm.update.exchange", "customer.ORG1.v1", message(i), i, false)).isCompleted();
+            positions.add(position);
+        }
+        return positions;
+    }
+
+    private List<String> readAll(long position) {
+        var bodies = new ArrayList<String>();
+        for (OutboxRecord record = journal.read(position); record != null; record = journal.read(record.next())) {
+            bodies.add(new String(record.message().getBody(), StandardCharsets.UTF_8));
+        }
+        return bodies;
+    }
+
+    private static List<String> bodies(int from, int to) {
+        var bodies = new ArrayList<String>();
+        for (int i = from; i < to; i++) {
+            bodies.add(String.valueOf(i));
+        }
+        return bodies;
+    }
+
+    private static Message message(int i) {
+        var properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        // Pads records so a few fill a segment
+        properties.setHeader("padding", "x".repeat(200));
+        return new Message(String.valueOf(i).getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
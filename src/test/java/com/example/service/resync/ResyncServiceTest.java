@@ -0,0 +1,132 @@
+package com.example.service.resync;
+
+import com.example.config.QueueChangeProperties.QueueProperties;
+import com.example.model.CustomerDto;
+import com.example.model.CustomerRelationDto;
+import com.example.model.queue.CustomerChangeEventDto;
+import com.example.model.queue.CustomerRelationChangeEventDto;
+import com.example.service.mapping.TableMapper;
+import com.example.service.mapping.TableMapping;
+import com.example.service.resync.ResyncService.Filter;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ResyncServiceTest {
+
+    @Test
+    void keepsASingleIdInOneRange() {
+        assertThat(ResyncService.split(5, 5, 4)).containsExactly(new long[] {5, 5});
+    }
+
+    @Test
+    void splitsASpanSmallerThanThePartitionsIntoSingleIds() {
+        assertThat(ResyncService.split(1, 3, 8)).containsExactly(new long[] {1, 1}, new long[] {2, 2}, new long[] {3, 3});
+    }
+
+    @Test
+    void splitsIntoConsecutiveRangesCoveringTheSpan() {
+        assertThat(ResyncService.split(1, 10, 4))
+            .containsExactly(new long[] {1, 3}, new long[] {4, 6}, new long[] {7, 9}, new long[] {10, 10});
+        assertThat(ResyncService.split(0, 11, 3)).containsExactly(new long[] {0, 3}, new long[] {4, 7}, new long[] {8, 11});
+    }
+
+    @Test
+    void splitsUpToLongMaxValueWithoutOverflow() {
+        long max = Long.MAX_VALUE;
+        assertThat(ResyncService.split(max, max, 4)).containsExactly(new long[] {max, max});
+        assertThat(ResyncService.split(max - 5, max, 4))
+            .containsExactly(new long[] {max - 5, max - 4}, new long[] {max - 3, max - 2}, new long[] {max - 1, max});
+
+        List<long[]> ranges = ResyncService.split(1, max, 4);
+        assertThat(ranges).hasSize(4);
+        assertThat(ranges.get(0)[0]).isEqualTo(1);
+        assertThat(ranges.get(3)[1]).isEqualTo(max);
+        for (int i = 1; i < ranges.size(); i++) {
+            assertThat(ranges.get(i)[0]).isEqualTo(ranges.get(i - 1)[1] + 1);
+        }
+
+        assertThat(ResyncService.split(Long.MIN_VALUE, max, 2))
+            .containsExactly(new long[] {Long.MIN_VALUE, -1}, new long[] {0, max});
+    }
+
+    @Test
+    void splitsAnEmptySpanIntoNothing() {
+        assertThat(ResyncService.split(10, 9, 4)).isEmpty();
+    }
+
+    @Test
+    void filtersNothingWithoutConditions() throws Exception {
+        var filter = new Filter(customerMapper(), new ResyncRequest("customer", null, null, null, null));
+        var statement = mock(PreparedStatement.class);
+
+        filter.bind(statement, 3);
+
+        assertThat(filter.sql()).isEmpty();
+        verifyNoInteractions(statement);
+    }
+
+    @Test
+    void filtersCustomersByTheirOwnColumns() throws Exception {
+        Instant since = Instant.parse("2024-03-01T00:00:00Z");
+        var filter = new Filter(customerMapper(), new ResyncRequest("customer", "ORG1", 10L, 20L, since));
+        var statement = mock(PreparedStatement.class);
+
+        filter.bind(statement, 3);
+
+        assertThat(filter.sql())
+            .isEqualTo(" AND source_org_code = ? AND id >= ? AND id <= ? AND modified_dtime >= ?");
+        verify(statement).setObject(3, "ORG1");
+        verify(statement).setObject(4, 10L);
+        verify(statement).setObject(5, 20L);
+        verify(statement).setObject(6, Timestamp.from(since));
+    }
+
+    @Test
+    void filtersChildRowsThroughTheirCustomer() throws Exception {
+        var filter = new Filter(relationMapper(), new ResyncRequest("customer_relation", "ORG1", null, 20L, null));
+        var statement = mock(PreparedStatement.class);
+
+        filter.bind(statement, 1);
+
+        assertThat(filter.sql()).isEqualTo(
+            " AND customer_id IN (SELECT id FROM crm.customer WHERE source_org_code = ?) AND customer_id <= ?");
+        verify(statement).setObject(1, "ORG1");
+        verify(statement).setObject(2, 20L);
+    }
+
+    private static TableMapper<CustomerDto> customerMapper() {
+        return TableMapping.builder(CustomerDto.class)
+            .inputTable("customer")
+            .queue(new QueueProperties())
+            .routingKey("customer.{orgCode}")
+            .id(CustomerDto::getId)
+            .field("orgCode", CustomerDto::getSourceOrgCode)
+            .event(CustomerChangeEventDto.class)
+            .aggregateRoot("customer")
+            .build()
+            .compile();
+    }
+
+    private static TableMapper<CustomerRelationDto> relationMapper() {
+        return TableMapping.builder(CustomerRelationDto.class)
+            .inputTable("customer_relation")
+            .queue(new QueueProperties())
+            .routingKey("relation")
+            .id(CustomerRelationDto::getId)
+            .partitionKey(CustomerRelationDto::getCustomerId)
+            .field("customerId", CustomerRelationDto::getCustomerId)
+            .event(CustomerRelationChangeEventDto.class)
+            .aggregatePart("relations")
+            .build()
+            .compile();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.service.snapshot;
+
+import com.example.model.CustomerDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CopyRowDecoderTest {
+
+    private static final String[] COLUMNS = {
+        "id", "first_name", "middle_name", "date_of_birth", "modified_dtime", "sensitive", "balance_sheet_total",
+        "number_of_employees"
+    };
+    private static final String[] TYPES = {"int8", "text", "varchar", "date", "timestamptz", "bool", "numeric", "int4"};
+
+    private final CopyRowDecoder<CustomerDto> decoder = new CopyRowDecoder<>(CustomerDto.class, COLUMNS, TYPES);
+
+    @Test
+    void convertsColumnsByType() {
+        CustomerDto row = decode("7\tJohn\t\\N\t1980-02-29\t2024-03-01 10:15:30.123+00\tt\t1234.50\t12\n");
+
+        assertThat(row.getId()).isEqualTo(7L);
+        assertThat(row.getFirstName()).isEqualTo("John");
+        assertThat(row.getMiddleName()).isNull();
+        assertThat(row.getDateOfBirth()).isEqualTo(LocalDate.of(1980, 2, 29));
+        assertThat(row.getModifiedDTime()).isEqualTo(Instant.parse("2024-03-01T10:15:30.123Z"));
+        assertThat(row.isSensitive()).isTrue();
+        assertThat(row.getBalanceSheetTotal()).isEqualTo(new BigDecimal("1234.50"));
+        assertThat(row.getNumberOfEmployees()).isEqualTo(12);
+    }
+
+    @Test
+    void readsTimestampsWithoutOffsetAsUtcAndHonoursAnOffset() {
+        assertThat(decode("1\ta\tb\t2000-01-01\t2024-03-01 10:15:30\tf\t0\t0").getModifiedDTime())
+            .isEqualTo(Instant.parse("2024-03-01T10:15:30Z"));
+        assertThat(decode("1\ta\tb\t2000-01-01\t2024-03-01 10:15:30.5+02:00\tf\t0\t0").getModifiedDTime())
+            .isEqualTo(Instant.parse("2024-03-01T08:15:30.500Z"));
+    }
+
+    @Test
+    void unescapesEmbeddedTabsNewlinesAndBackslashes() {
+        CustomerDto row = decode("1\tone\\ttwo\\nthree\\r\\\\four\tx\\x41\\101\\7\t2000-01-01\t\\N\tf\t0\t0");
+
+        assertThat(row.getFirstName()).isEqualTo("one\ttwo\nthree\r\\four");
+        assertThat(row.getMiddleName()).isEqualTo("xAA\u0007");
+        assertThat(row.getModifiedDTime()).isNull();
+        assertThat(row.isSensitive()).isFalse();
+    }
+
+    @Test
+    void keepsEscapedBackslashNAndEmptyStringsApartFromNull() {
+        CustomerDto row = decode("1\t\\\\N\t\t2000-01-01\t\\N\tf\t0\t0");
+
+        assertThat(row.getFirstName()).isEqualTo("\\N");
+        assertThat(row.getMiddleName()).isEmpty();
+    }
+
+    @Test
+    void decodesMultiByteText() {
+        CustomerDto row = decode("1\tŠarūnas\\tŽ\t日本\t2000-01-01\t\\N\tf\t0\t0");
+
+        assertThat(row.getFirstName()).isEqualTo("Šarūnas\tŽ");
+        assertThat(row.getMiddleName()).isEqualTo("日本");
+    }
+
+    @Test
+    void rejectsRowsWithAnotherColumnCount() {
+        assertThatThrownBy(() -> decode("1\tJohn\n")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> decode("1\ta\tb\t2000-01-01\t\\N\tf\t0\t0\textra"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private CustomerDto decode(String row) {
+        return decoder.decode(row.getBytes(StandardCharsets.UTF_8));
+    }
+}
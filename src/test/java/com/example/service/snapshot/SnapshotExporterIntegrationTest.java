@@ -0,0 +1,211 @@
+package com.example.service.snapshot;
+
+import com.example.config.ExportProperties;
+import com.example.config.QueueChangeProperties.QueueProperties;
+import com.example.config.SnapshotProperties;
+import com.example.model.CustomerDto;
+import com.example.model.queue.CustomerChangeEventDto;
+import com.example.service.mapping.TableMapper;
+import com.example.service.mapping.TableMapping;
+import com.example.service.snapshot.SnapshotExporter.ExportStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the export against a real Postgres with {@code wal_level=logical}, e.g. the one of docker-compose.yml:
+ * <pre>
+ * docker compose up -d postgres
+ * CRM_EXPORT_TEST_URL=jdbc:postgresql://localhost:5439/crm_db ./gradlew test --tests '*SnapshotExporterIntegrationTest'
+ * </pre>
+ * {@code CRM_EXPORT_TEST_USER} and {@code CRM_EXPORT_TEST_PASSWORD} default to the compose credentials. The
+ * user needs the replication privilege. The test works on its own table, publication and slot and drops them.
+ */
+@EnabledIfEnvironmentVariable(named = "CRM_EXPORT_TEST_URL", matches = ".+")
+class SnapshotExporterIntegrationTest {
+
+    private static final String TABLE = "export_it_customer";
+    private static final String SLOT = "crm_export_it";
+    private static final String PUBLICATION = "crm_export_it";
+    private static final int ROWS = 1000;
+
+    private final ExportProperties exportProperties = new ExportProperties();
+    private final SnapshotProperties snapshotProperties = new SnapshotProperties();
+    private final SnapshotHandler snapshotHandler = mock(SnapshotHandler.class);
+    private final List<CustomerDto> exported = Collections.synchronizedList(new ArrayList<>());
+    private DataSource dataSource;
+    private DataSourceProperties dataSourceProperties;
+    private JdbcTemplate jdbc;
+    private SnapshotExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        dataSourceProperties = new DataSourceProperties();
+        dataSourceProperties.setUrl(System.getenv("CRM_EXPORT_TEST_URL"));
+        dataSourceProperties.setUsername(env("CRM_EXPORT_TEST_USER", "crm_app"));
+        dataSourceProperties.setPassword(env("CRM_EXPORT_TEST_PASSWORD", "app"));
+        dataSource = new DriverManagerDataSource(dataSourceProperties.getUrl(), dataSourceProperties.getUsername(),
+            dataSourceProperties.getPassword());
+        jdbc = new JdbcTemplate(dataSource);
+        dropSlotAndPublication();
+        jdbc.execute("CREATE SCHEMA IF NOT EXISTS crm");
+        jdbc.execute("DROP TABLE IF EXISTS crm." + TABLE);
+        jdbc.execute("CREATE TABLE crm." + TABLE + " (id bigint PRIMARY KEY, first_name text, middle_name text,"
+            + " date_of_birth date, modified_dtime timestamptz)");
+        // Gaps between the ids, so some ranges are sparse
+        jdbc.execute("INSERT INTO crm." + TABLE + " SELECT i * 3, 'name ' || i, NULL, DATE '1980-01-01' + i,"
+            + " TIMESTAMPTZ '2024-03-01 10:00:00+02' + i * INTERVAL '1 second' FROM generate_series(1, " + ROWS + ") i");
+        jdbc.update("UPDATE crm." + TABLE + " SET first_name = ?, middle_name = '' WHERE id = 3", "tab\there\nnew \\line");
+
+        exportProperties.setSlotName(SLOT);
+        exportProperties.setPublicationName(PUBLICATION);
+        exportProperties.setPartitions(3);
+        snapshotProperties.setBatchSize(64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        exporter.destroy();
+        dropSlotAndPublication();
+        jdbc.execute("DROP TABLE IF EXISTS crm." + TABLE);
+    }
+
+    @Test
+    void exportsEveryRowOnceAndKeepsTheSlot() throws Exception {
+        publishing(CompletableFuture.completedFuture(null), null);
+        start();
+
+        ExportStatus status = awaitFinished();
+
+        assertThat(status.state()).isEqualTo("DONE");
+        assertThat(status.watermark()).isNotNull();
+        assertThat(status.rows()).containsEntry(TABLE, (long) ROWS);
+        assertThat(exported).extracting(CustomerDto::getId)
+            .containsExactlyInAnyOrderElementsOf(LongStream.rangeClosed(1, ROWS).map(i -> i * 3).boxed().toList());
+        CustomerDto first = exported.stream().filter(row -> row.getId() == 3).findFirst().orElseThrow();
+        assertThat(first.getFirstName()).isEqualTo("tab\there\nnew \\line");
+        assertThat(first.getMiddleName()).isEmpty();
+        assertThat(first.getDateOfBirth()).isEqualTo(LocalDate.of(1980, 1, 2));
+        assertThat(first.getModifiedDTime()).isEqualTo(Instant.parse("2024-03-01T08:00:01Z"));
+        CustomerDto other = exported.stream().filter(row -> row.getId() == 6).findFirst().orElseThrow();
+        assertThat(other.getMiddleName()).isNull();
+
+        assertThat(slotExists()).isTrue();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM pg_publication_tables WHERE pubname = ? AND tablename = ?",
+            Long.class, PUBLICATION, TABLE)).isEqualTo(1);
+    }
+
+    @Test
+    void dropsTheSlotWhenPublishingFails() throws Exception {
+        publishing(CompletableFuture.failedFuture(new IllegalStateException("broker unreachable")), null);
+        start();
+
+        ExportStatus status = awaitFinished();
+
+        assertThat(status.state()).isEqualTo("FAILED");
+        assertThat(status.error()).contains("broker unreachable");
+        assertThat(slotExists()).isFalse();
+    }
+
+    @Test
+    void dropsTheSlotWhenCancelled() throws Exception {
+        var firstBatch = new CountDownLatch(1);
+        publishing(CompletableFuture.completedFuture(null), firstBatch);
+        start();
+
+        assertThat(firstBatch.await(10, TimeUnit.SECONDS)).isTrue();
+        exporter.cancel();
+        ExportStatus status = awaitFinished();
+
+        assertThat(status.state()).isEqualTo("CANCELLED");
+        assertThat(exported).hasSizeLessThan(ROWS);
+        assertThat(slotExists()).isFalse();
+    }
+
+    /**
+     * @param published returned for every batch, the exporter clears a batch once it is handed over.
+     * @param handedOver counted down on the first batch, which then waits a little so a cancel lands mid-export.
+     */
+    @SuppressWarnings("unchecked")
+    private void publishing(CompletableFuture<Void> published, CountDownLatch handedOver) {
+        when(snapshotHandler.handleRows(any(TableMapper.class), any(List.class))).thenAnswer(invocation -> {
+            exported.addAll((List<CustomerDto>) invocation.getArgument(1));
+            if (handedOver != null) {
+                handedOver.countDown();
+                Thread.sleep(100);
+            }
+            return published;
+        });
+    }
+
+    private void start() {
+        var beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("dataSource", dataSource);
+        beans.registerSingleton("dataSourceProperties", dataSourceProperties);
+        exporter = new SnapshotExporter(List.of(mapping()), exportProperties, snapshotProperties, snapshotHandler,
+            beans.getBeanProvider(DataSource.class), beans.getBeanProvider(DataSourceProperties.class));
+        exporter.init();
+        exporter.start();
+    }
+
+    private ExportStatus awaitFinished() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        ExportStatus status = exporter.status();
+        while (status.finished() == null && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            status = exporter.status();
+        }
+        assertThat(status.finished()).as("export finished").isNotNull();
+        return status;
+    }
+
+    private boolean slotExists() {
+        return jdbc.queryForObject("SELECT count(*) FROM pg_replication_slots WHERE slot_name = ?", Long.class, SLOT) > 0;
+    }
+
+    private void dropSlotAndPublication() {
+        jdbc.query("SELECT pg_drop_replication_slot(slot_name) FROM pg_replication_slots WHERE slot_name = ?",
+            rows -> { }, SLOT);
+        jdbc.execute("DROP PUBLICATION IF EXISTS " + PUBLICATION);
+    }
+
+    private static TableMapping<CustomerDto> mapping() {
+        return TableMapping.builder(CustomerDto.class)
+            .inputTable(TABLE)
+            .outputTable("customer")
+            .queue(new QueueProperties())
+            .routingKey("customer.{orgCode}")
+            .id(CustomerDto::getId)
+            .field("firstName", CustomerDto::getFirstName)
+            .field("orgCode", CustomerDto::getSourceOrgCode)
+            .event(CustomerChangeEventDto.class)
+            .build();
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isEmpty() ? fallback : value;
+    }
+}
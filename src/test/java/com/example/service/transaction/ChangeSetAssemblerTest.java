@@ -0,0 +1,200 @@
+package com.example.service.transaction;
+
+import com.example.config.RoutingProperties;
+import com.example.config.TransactionProperties;
+import com.example.model.queue.DebeziumChangeEvent;
+import com.example.model.queue.DebeziumChangeEvent.Transaction;
+import com.example.model.queue.DebeziumTransactionEvent;
+import com.example.service.CrmChangeEventSender;
+import com.example.service.OutboundEvent;
+import com.example.service.aggregate.CustomerOrgIndex;
+import com.example.service.mapping.RowChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.model.queue.DebeziumTransactionEvent.BEGIN;
+import static com.example.model.queue.DebeziumTransactionEvent.END;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChangeSetAssemblerTest {
+
+    private final TransactionProperties transactionProperties = new TransactionProperties();
+    private final CrmChangeEventSender sender = mock(CrmChangeEventSender.class);
+    private final CompletableFuture<Void> changeSetConfirmed = new CompletableFuture<>();
+    private final RoutingProperties routingProperties = new RoutingProperties();
+    private final Map<DebeziumChangeEvent<?>, RowChangeEvent<?>> rows = new IdentityHashMap<>();
+    private CustomerOrgIndex orgIndex;
+    private ChangeSetAssembler assembler;
+
+    @BeforeEach
+    void setUp() {
+        transactionProperties.setEnabled(true);
+        when(sender.sendChangeSet(any())).thenReturn(changeSetConfirmed);
+    }
+
+    @AfterEach
+    void tearDown() {
+        assembler.destroy();
+    }
+
+    @Test
+    void publishesCompleteTransactionAsOneChangeSetInTotalOrder() throws Exception {
+        start();
+        var second = event("tx1", 2);
+        var first = event("tx1", 1);
+
+        var secondPublished = assembler.add(second, outbound(second));
+        var firstPublished = assembler.add(first, outbound(first));
+        assembler.accept(boundary(END, "tx1", 2));
+
+        var changeSet = ArgumentCaptor.forClass(ChangeSet.class);
+        verify(sender, timeout(1000)).sendChangeSet(changeSet.capture());
+        assertThat(changeSet.getValue().transactionId()).isEqualTo("tx1");
+        assertThat(changeSet.getValue().events()).containsExactly(rowOf(first), rowOf(second));
+        assertThat(firstPublished).isNotDone();
+
+        changeSetConfirmed.complete(null);
+        firstPublished.get(1, TimeUnit.SECONDS);
+        secondPublished.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void publishesChangeSetsInCommitOrder() {
+        start();
+        assembler.accept(boundary(BEGIN, "tx1", null));
+        assembler.accept(boundary(BEGIN, "tx2", null));
+        var later = event("tx2", 1);
+        assembler.add(later, outbound(later));
+        assembler.accept(boundary(END, "tx2", 1));
+
+        verify(sender, after(200).never()).sendChangeSet(any());
+
+        var earlier = event("tx1", 1);
+        assembler.add(earlier, outbound(earlier));
+        assembler.accept(boundary(END, "tx1", 1));
+
+        var changeSets = ArgumentCaptor.forClass(ChangeSet.class);
+        verify(sender, timeout(1000).times(2)).sendChangeSet(changeSets.capture());
+        assertThat(changeSets.getAllValues()).extracting(ChangeSet::transactionId).containsExactly("tx1", "tx2");
+    }
+
+    @Test
+    void releasesIncompleteTransactionWithoutChangeSetOrSingleEvents() throws Exception {
+        transactionProperties.setTimeout(50);
+        start();
+        var buffered = event("tx1", 1);
+        var published = assembler.add(buffered, outbound(buffered));
+
+        // The caller published the single events already
+        published.get(1, TimeUnit.SECONDS);
+        var late = event("tx1", 2);
+        assembler.add(late, outbound(late)).get(1, TimeUnit.SECONDS);
+        assembler.accept(boundary(END, "tx1", 2));
+
+        verify(sender, after(200).never()).sendChangeSet(any());
+        verify(sender, never()).send(any());
+        assertThat(assembler.openTransactions()).isZero();
+    }
+
+    @Test
+    void releasesOversizedTransactionWithoutChangeSet() throws Exception {
+        transactionProperties.setMaxEvents(1);
+        start();
+        var first = event("tx1", 1);
+        var firstPublished = assembler.add(first, outbound(first));
+        var second = event("tx1", 2);
+        assembler.add(second, outbound(second)).get(1, TimeUnit.SECONDS);
+
+        firstPublished.get(1, TimeUnit.SECONDS);
+        verify(sender, never()).sendChangeSet(any());
+        assertThat(assembler.bufferedEvents()).isZero();
+    }
+
+    @Test
+    void routesChangeSetsByTheOrgCodeOfTheirCustomers() {
+        routingProperties.setChildOrgCode(true);
+        start();
+        orgIndex.put(1, "ORG1");
+        orgIndex.put(2, "ORG2");
+        var single = event("tx1", 1);
+        assembler.add(single, outbound(single, 1));
+        assembler.accept(boundary(END, "tx1", 1));
+        var first = event("tx2", 1);
+        assembler.add(first, outbound(first, 1));
+        var second = event("tx2", 2);
+        assembler.add(second, outbound(second, 2));
+        assembler.accept(boundary(END, "tx2", 2));
+        var unknown = event("tx3", 1);
+        assembler.add(unknown, outbound(unknown, 3));
+        assembler.accept(boundary(END, "tx3", 1));
+
+        var changeSets = ArgumentCaptor.forClass(ChangeSet.class);
+        verify(sender, timeout(1000).times(3)).sendChangeSet(changeSets.capture());
+        assertThat(changeSets.getAllValues()).extracting(ChangeSet::routingKeySuffix)
+            .containsExactly("changeSet.ORG1", "changeSet.mixed", "changeSet.unknown");
+    }
+
+    @Test
+    void keepsPlainRoutingKeyWithoutOrgRouting() {
+        start();
+        var single = event("tx1", 1);
+        assembler.add(single, outbound(single, 1));
+        assembler.accept(boundary(END, "tx1", 1));
+
+        var changeSet = ArgumentCaptor.forClass(ChangeSet.class);
+        verify(sender, timeout(1000)).sendChangeSet(changeSet.capture());
+        assertThat(changeSet.getValue().routingKeySuffix()).isEqualTo(ChangeSet.ROUTING_KEY_SUFFIX);
+    }
+
+    private void start() {
+        orgIndex = new CustomerOrgIndex(routingProperties);
+        assembler = new ChangeSetAssembler(transactionProperties, sender, List.of(), orgIndex, new SimpleMeterRegistry());
+        assembler.init();
+    }
+
+    private static DebeziumChangeEvent<Object> event(String transactionId, long totalOrder) {
+        var transaction = new Transaction();
+        transaction.setId(transactionId);
+        transaction.setTotalOrder(totalOrder);
+        var event = new DebeziumChangeEvent<Object>();
+        event.setOperation("u");
+        event.setTransaction(transaction);
+        return event;
+    }
+
+    private static DebeziumTransactionEvent boundary(String status, String transactionId, Integer eventCount) {
+        var event = new DebeziumTransactionEvent();
+        event.setStatus(status);
+        event.setId(transactionId);
+        event.setEventCount(eventCount == null ? null : eventCount.longValue());
+        return event;
+    }
+
+    private OutboundEvent outbound(DebeziumChangeEvent<?> event) {
+        return outbound(event, 1);
+    }
+
+    private OutboundEvent outbound(DebeziumChangeEvent<?> event, long customerId) {
+        return new OutboundEvent(rowOf(event), "customer.ORG1", customerId);
+    }
+
+    private RowChangeEvent<?> rowOf(DebeziumChangeEvent<?> event) {
+        return rows.computeIfAbsent(event, ignored -> mock(RowChangeEvent.class));
+    }
+}